@@ -1,9 +1,13 @@
 package com.lennadi.eventbubble30;
 
 import com.lennadi.eventbubble30.features.service.BenutzerService;
+import com.lennadi.eventbubble30.features.service.BookmarkCountService;
+import com.lennadi.eventbubble30.features.service.PurgeService;
+import com.lennadi.eventbubble30.logging.AuditLogPartitions;
 import com.lennadi.eventbubble30.security.password.PasswordResetService;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -13,14 +17,36 @@ public class CronJobs {
 
     private final BenutzerService benutzerService;
     private final PasswordResetService passwordResetService;
+    private final BookmarkCountService bookmarkCountService;
+    private final PurgeService purgeService;
+    /// nur unter postgresDB vorhanden
+    private final ObjectProvider<AuditLogPartitions> auditLogPartitions;
 
     @Scheduled(cron = "0 0 3 * * *")
     public void cleanupUnverifiedAccounts() {
         benutzerService.cleanupUnverifiedAccounts();
     }
 
+    @Scheduled(cron = "0 15 3 * * *")
+    public void purgeSoftDeleted() {
+        purgeService.purge();
+    }
+
     @Scheduled(cron = "0 0 4 * * *")
     public void cleanupExpiredPasswordResetTokens() {
         passwordResetService.cleanupExpiredPasswordResetTokens();
     }
+
+    @Scheduled(cron = "0 30 4 * * *")
+    public void recountBookmarks() {
+        bookmarkCountService.recount();
+    }
+
+    @Scheduled(cron = "0 45 4 * * *")
+    public void archiveAuditLog() {
+        auditLogPartitions.ifAvailable(p -> {
+            p.ensurePartitions();
+            p.archiveExpired();
+        });
+    }
 }
@@ -1,8 +1,10 @@
 package com.lennadi.eventbubble30.config;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 
 @Service
@@ -12,11 +14,24 @@ public class ServerConfigService {
 
     private static final Long SINGLETON_ID = 1L;
 
+    /// wird bei jeder Token-Validierung gebraucht -> im Speicher, nach ttl neu laden (für andere Instanzen)
+    @Value("${app.jwt.validation-cache.ttl:5m}")
+    private Duration ttl;
+
+    private record Cached(Instant value, Instant expires) {}
+
+    private volatile Cached globalTokenRevokation;
+
     public Instant getGlobalTokenRevokationTime()
     {
-        return repo.findById(SINGLETON_ID)
+        Cached c = globalTokenRevokation;
+        if (c != null && c.expires().isAfter(Instant.now())) return c.value();
+
+        Instant value = repo.findById(SINGLETON_ID)
                 .map(ServerConfigSingletonEntity::getGlobalTokensInvalidatedAt)
                 .orElse(Instant.EPOCH);
+        globalTokenRevokation = new Cached(value, Instant.now().plus(ttl));
+        return value;
     }
 
     public void invalidateAllTokensNow(){
@@ -28,5 +43,6 @@ public class ServerConfigService {
                 });
         cfg.setGlobalTokensInvalidatedAt(Instant.now());
         repo.save(cfg);
+        globalTokenRevokation = new Cached(cfg.getGlobalTokensInvalidatedAt(), Instant.now().plus(ttl));
     }
 }
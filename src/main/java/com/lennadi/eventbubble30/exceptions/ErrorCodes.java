@@ -17,7 +17,11 @@ public enum ErrorCodes {
 
     //409
     USERNAME_TAKEN("E_USERNAME_TAKEN"),
-    EMAIL_TAKEN("E_EMAIL_TAKEN");//todo privacy concerns?
+    EMAIL_TAKEN("E_EMAIL_TAKEN"),//todo privacy concerns?
+
+    //429
+    TOO_BUSY("E_TOO_BUSY"),
+    RATE_LIMITED("E_RATE_LIMITED");
 
     public final String actual;
     ErrorCodes(String pActual){
@@ -0,0 +1,13 @@
+package com.lennadi.eventbubble30.features;
+
+import java.util.List;
+
+/**
+ * Seite einer Keyset-Pagination (Events, Audit-Log). {@code nextCursor} ist nur gesetzt, wenn {@code hasNext}.
+ */
+public record CursorPage(
+        List<IDTO> content,
+        int size,
+        boolean hasNext,
+        String nextCursor
+) {}
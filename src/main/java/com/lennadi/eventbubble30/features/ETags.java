@@ -0,0 +1,17 @@
+package com.lennadi.eventbubble30.features;
+
+import java.time.Instant;
+import java.util.StringJoiner;
+
+/// schwache ETags für Conditional GET, aus allem was die Antwort beeinflusst (Instants als Epoch-Millis)
+public final class ETags {
+    private ETags() {}
+
+    public static String weak(Object... parts) {
+        StringJoiner j = new StringJoiner("-", "W/\"", "\"");
+        for (Object p : parts) {
+            j.add(p instanceof Instant i ? Long.toString(i.toEpochMilli()) : String.valueOf(p));
+        }
+        return j.toString();
+    }
+}
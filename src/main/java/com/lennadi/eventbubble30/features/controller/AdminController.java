@@ -1,23 +1,34 @@
 package com.lennadi.eventbubble30.features.controller;
 
+import com.lennadi.eventbubble30.features.CursorPage;
 import com.lennadi.eventbubble30.features.IDTO;
 import com.lennadi.eventbubble30.features.db.EntityType;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.service.BenutzerService;
 import com.lennadi.eventbubble30.features.service.DtoService;
+import com.lennadi.eventbubble30.features.service.EventImportService;
 import com.lennadi.eventbubble30.logging.Audit;
+import com.lennadi.eventbubble30.logging.AuditCursor;
 import com.lennadi.eventbubble30.logging.AuditLog;
 import com.lennadi.eventbubble30.logging.AuditLogRepository;
 import com.lennadi.eventbubble30.config.ServerConfigService;
 import com.lennadi.eventbubble30.logging.AuditLogStreamerService;
+import com.lennadi.eventbubble30.filter.ClientIp;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.List;
 
@@ -29,6 +40,8 @@ public class AdminController {
     private final ServerConfigService serverConfigService;
     private final AuditLogStreamerService  auditLogStreamerService;
     private final DtoService dtoService;
+    private final EventImportService eventImportService;
+    private final BenutzerService benutzerService;
 
 
     @GetMapping("/audit-log")
@@ -44,77 +57,125 @@ public class AdminController {
             @RequestParam(required = false) Instant from,
             @RequestParam(required = false) Instant to
     ) {
-        var pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
+        var pageable = PageRequest.of(page, size, AuditLogRepository.NEWEST_FIRST);
 
-        // collect dynamic filters
-        List<Specification<AuditLog>> filters = new java.util.ArrayList<>();
+        Specification<AuditLog> spec = AuditLogRepository.Specs.filter(
+                userId, action, resourceType, resourceId, success, from, to
+        );
 
-        if (userId != null) {
-            filters.add((root, q, cb) ->
-                    cb.equal(root.get("benutzer").get("externalId"), userId.trim()));
-        }
+        return auditLogRepository
+                .findAll(spec, pageable)
+                .map(dtoService::get);
 
-        if (action != null && !action.isEmpty()) {
-            filters.add((root, q, cb) ->
-                    root.get("action").in(action));
-        }
+    }
 
-        if (resourceType != null) {
-            filters.add((root, q, cb) ->
-                    cb.equal(root.get("resourceType"), resourceType));
-        }
+    private static final int MAX_AUDIT_PAGE_SIZE = 500;
 
-        if (resourceId != null) {
-            filters.add((root, q, cb) ->
-                    cb.equal(root.get("resourceId"), resourceId));
-        }
+    /**
+     * Keyset-Variante: {@code ?cursor=} (leer) für die erste Seite, danach immer den {@code nextCursor} der letzten
+     * Antwort mitschicken. Kein count, kein OFFSET, auch tief im Log gleich schnell.
+     */
+    @GetMapping(value = "/audit-log", params = "cursor")
+    public CursorPage listAuditLogsAfter(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size,
 
-        if (success != null) {
-            filters.add((root, q, cb) ->
-                    cb.equal(root.get("success"), success));
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) List<AuditLog.Action> action,
+            @RequestParam(required = false) EntityType resourceType,
+            @RequestParam(required = false) String resourceId,
+            @RequestParam(required = false) Boolean success,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to
+    ) {
+        if (size < 1 || size > MAX_AUDIT_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page Size must be between 1 and " + MAX_AUDIT_PAGE_SIZE);
         }
 
-        if (from != null) {
-            filters.add((root, q, cb) ->
-                    cb.greaterThanOrEqualTo(root.get("timestamp"), from));
+        AuditCursor after = null;
+        if (!cursor.isBlank()) {
+            try {
+                after = AuditCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor is invalid");
+            }
         }
 
-        if (to != null) {
-            filters.add((root, q, cb) ->
-                    cb.lessThanOrEqualTo(root.get("timestamp"), to));
-        }
+        Specification<AuditLog> spec = AuditLogRepository.Specs
+                .filter(userId, action, resourceType, resourceId, success, from, to)
+                .and(AuditLogRepository.Specs.seek(after));
 
-        Specification<AuditLog> finalSpec =
-                filters.isEmpty()
-                        ? Specification.allOf()
-                        : Specification.allOf(filters);
+        List<AuditLog> rows = auditLogRepository.findBy(spec, q -> q
+                .sortBy(AuditLogRepository.NEWEST_FIRST)
+                .limit(size + 1)
+                .all());
 
-        return auditLogRepository
-                .findAll(finalSpec, pageable)
-                .map(dtoService::get);
+        boolean hasNext = rows.size() > size;
+        if (hasNext) rows = rows.subList(0, size);
 
+        return new CursorPage(
+                rows.stream().map(dtoService::get).toList(),
+                size,
+                hasNext,
+                hasNext ? AuditCursor.after(rows.get(rows.size() - 1)).encode() : null
+        );
     }
 
+    /**
+     * Live-Stream neuer Audit-Einträge. Nach einem Reconnect schickt der Browser {@code Last-Event-ID} mit, dann wird
+     * aus dem Puffer der letzten Einträge nachgeliefert. Heartbeats und Drop-Meldungen siehe {@link AuditLogStreamerService}.
+     */
     @GetMapping(value = "/audit-log/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter streamAuditLogs(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
             @RequestParam(required = false) String userId,
             @RequestParam(required = false) List<AuditLog.Action> action,
             @RequestParam(required = false) EntityType resourceType,
             @RequestParam(required = false) String resourceId,
             @RequestParam(required = false) Boolean success
     ) {
-        SseEmitter emitter = new SseEmitter(0L); // todo heartbeat (Cloudflare macht nach 100s zu)
+        SseEmitter emitter = new SseEmitter(0L);
 
-        auditLogStreamerService.registerListener(emitter, userId, action, resourceType, resourceId, success);
-
-        try {
-            emitter.send(SseEmitter.event().comment("connected"));
-        } catch (Exception ignored) {}
+        auditLogStreamerService.registerListener(emitter, lastEventId, userId, action, resourceType, resourceId, success);
 
         return emitter;
     }
 
+    @GetMapping("/audit-log/stream/subscribers")
+    public List<AuditLogStreamerService.SubscriberInfo> auditStreamSubscribers() {
+        return auditLogStreamerService.subscribers();
+    }
+
+
+
+    /**
+     * Bulk-Import: Body ist NDJSON, eine CreateVeranstaltungRequest pro Zeile. Antwort ist ebenfalls NDJSON, eine
+     * Ergebniszeile pro Eingabezeile (gespeichert mit id oder Fehler), zum Schluss eine Zusammenfassung.
+     * Ohne {@code owner} gehören die Events dem importierenden Admin. Audit pro Chunk, nicht pro Aufruf.
+     */
+    @PostMapping(value = "/events/import", consumes = NDJSON, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> importEvents(
+            @RequestParam(required = false) String owner,
+            HttpServletRequest request
+    ) throws IOException {
+        Benutzer admin = benutzerService.getCurrentUser();
+        Benutzer besitzer = owner != null ? benutzerService.requireUser(owner) : admin;
+
+        EventImportService.Actor actor = new EventImportService.Actor(
+                admin,
+                ClientIp.of(request),
+                request.getRequestURI()
+        );
+
+        InputStream body = request.getInputStream();
+        StreamingResponseBody stream = out -> eventImportService.importNdjson(body, out, besitzer, actor);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(stream);
+    }
 
+    private static final String NDJSON = "application/x-ndjson";
 
     @Audit(action = AuditLog.Action.INVALIDATE_TOKENS, resourceType = EntityType.SERVER_CONFIG)
     @PostMapping("invalidate-tokens")
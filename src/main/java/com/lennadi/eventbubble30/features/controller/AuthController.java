@@ -10,6 +10,7 @@ import com.lennadi.eventbubble30.logging.AuditLog;
 import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
 import com.lennadi.eventbubble30.security.BenutzerDetails;
 import com.lennadi.eventbubble30.security.captcha.CaptchaService;
+import com.lennadi.eventbubble30.security.password.PasswordHasher;
 import com.lennadi.eventbubble30.security.password.PasswordResetService;
 import com.lennadi.eventbubble30.security.token.JwtService;
 import com.lennadi.eventbubble30.features.service.BenutzerService;
@@ -19,18 +20,13 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.DisabledException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -47,7 +43,7 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AuthController {
 
-    private final AuthenticationManager authManager;
+    private final PasswordHasher passwordHasher;
     private final BenutzerRepository benutzerRepository;
     private final BenutzerService benutzerService;
     private final CaptchaService captchaService;
@@ -68,7 +64,9 @@ public class AuthController {
     ){}
 
     public record SignupRequest(
-            @NotBlank String username,
+            @NotBlank @Size(min = 3, max = 20)
+            @Pattern(regexp = "^[a-zA-Z0-9_]+$")
+            String username,
             @NotBlank @Size(min = 8, max = 20) String password,
             @NotBlank @Email String email,
             @NotBlank String captchaToken
@@ -133,37 +131,26 @@ public class AuthController {
     )
     @PostMapping("/login")//todo require captcha (mby filter?)
     public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest req) {
-        Optional<Benutzer> ben = benutzerRepository.findByEmailIgnoreCase(req.username());
-        if (ben.isEmpty()) {
-            ben = benutzerRepository.findByUsernameIgnoreCase(req.username());
-        }
-        if(ben.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ErrorCodes.INVALID_CREDENTIALS.toString());
-        }
-        Benutzer b = ben.get();
-
+        // eine Query für E-Mail oder Benutzername, BCrypt dann im PasswordHasher-Pool statt über den AuthenticationManager
+        Benutzer b = benutzerRepository.findByLogin(req.username())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, ErrorCodes.INVALID_CREDENTIALS.toString()));
 
         RequestContextHolder.currentRequestAttributes()
                 .setAttribute("auditResourceId", b.getExternalId(), RequestAttributes.SCOPE_REQUEST);
 
-        BenutzerDetails user;
-        boolean emailVerified = b.isEmailVerified();
+        BenutzerDetails user = new BenutzerDetails(b);
 
-        try {
-            Authentication auth = authManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(b.getUsername(), req.password())
-            );
-            user = (BenutzerDetails) auth.getPrincipal();
-        } catch (DisabledException e) {
-            if(emailVerified) {
+        // gleiche Reihenfolge wie DaoAuthenticationProvider: erst aktiv, dann Passwort
+        if (!user.isEnabled()) {
+            if(b.isEmailVerified()) {
                 throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ErrorCodes.ACCOUNT_NOT_ACTIVE.toString());
             }else{
                 throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ErrorCodes.EMAIL_NOT_VERIFIED.toString());
             }
-        } catch (BadCredentialsException e) {
+        }
+
+        if (!passwordHasher.matches(req.password(), b.getPasswordHash())) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ErrorCodes.INVALID_CREDENTIALS.toString());
-        } catch (AuthenticationException ex) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Fehler bei der Anmeldung");
         }
 
 
@@ -10,19 +10,23 @@ import com.lennadi.eventbubble30.features.service.VeranstaltungService;
 import com.lennadi.eventbubble30.logging.Audit;
 import com.lennadi.eventbubble30.logging.AuditLog;
 import com.lennadi.eventbubble30.features.service.BenutzerService;
+import com.lennadi.eventbubble30.security.token.FeedTokenService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static com.lennadi.eventbubble30.logging.AuditLog.Action.UPDATE;
 
@@ -34,6 +38,7 @@ public class BenutzerController {
     private final BenutzerService service;
     private final VeranstaltungService veranstaltungService;
     private final DtoService dtoService;
+    private final FeedTokenService feedTokens;
 
     private String resolveExtId(String segment) {
         if ("me".equalsIgnoreCase(segment)) {
@@ -126,7 +131,29 @@ public class BenutzerController {
         String extId = resolveExtId(segment);
 
         Set<Veranstaltung> ret = service.getBookmarked(extId);
-        return ret.stream().map((Veranstaltung v)->dtoService.get(v, true, DTOLevel.CARD)).collect(Collectors.toSet());
+        return new LinkedHashSet<>(dtoService.getCards(
+                ret,
+                service.bookmarkedAmong(ret.stream().map(Veranstaltung::getId).toList())
+        ));
+    }
+
+    public record FeedLink(String url) {}
+
+    /// Abo-Link für die eigene Merkliste (enthält ein Token, also nur für einen selbst)
+    @GetMapping("/{segment}/bookmarked/feed")
+    public FeedLink getBookmarkFeed(@PathVariable String segment) {
+        String extId = resolveExtId(segment);
+        Benutzer current = service.getCurrentUser();
+        if (!extId.equalsIgnoreCase(current.getExternalId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "only your own feed");
+        }
+
+        String url = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/events/feeds/bookmarks.ics")
+                .queryParam("user", extId)
+                .queryParam("token", feedTokens.tokenFor(current))
+                .toUriString();
+        return new FeedLink(url);
     }
 
     @GetMapping({"", "/"})
@@ -1,6 +1,7 @@
 package com.lennadi.eventbubble30.features.controller;
 
 import com.lennadi.eventbubble30.features.DTOLevel;
+import com.lennadi.eventbubble30.features.ETags;
 import com.lennadi.eventbubble30.features.IDTO;
 import com.lennadi.eventbubble30.features.db.EntityType;
 import com.lennadi.eventbubble30.features.db.entities.Benutzer;
@@ -20,6 +21,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.net.URI;
@@ -112,7 +114,11 @@ public class ModerationController {
     }
 
     @GetMapping("/tickets/{id}")
-    public IDTO getTicket(@PathVariable("id") String externalId) {
+    public IDTO getTicket(@PathVariable("id") String externalId, WebRequest request) {
+        Instant modified = ticketService.getLastModified(externalId);
+        if (request.checkNotModified(ETags.weak(externalId.toLowerCase(), modified), modified.toEpochMilli())) {
+            return null;
+        }
         return dtoService.get(ticketService.getByExternalIdOrThrow(externalId));
     }
 
@@ -1,6 +1,7 @@
 package com.lennadi.eventbubble30.features.controller;
 
 import com.lennadi.eventbubble30.features.DTOLevel;
+import com.lennadi.eventbubble30.features.ETags;
 import com.lennadi.eventbubble30.features.IDTO;
 import com.lennadi.eventbubble30.features.db.EntityType;
 import com.lennadi.eventbubble30.features.db.entities.Profil;
@@ -19,12 +20,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.time.Instant;
 
 @RestController
 @RequestMapping("/api/profiles")
@@ -86,9 +89,17 @@ public class ProfilController {
     @GetMapping("/{segment}")
     public ResponseEntity<IDTO> getProfil(
             @PathVariable String segment,
-            @RequestParam(defaultValue = "FULL") DTOLevel level
+            @RequestParam(defaultValue = "FULL") DTOLevel level,
+            WebRequest request
     ) throws BadRequestException {
         String extId = resolveExtId(segment);
+
+        dtoService.checkLevel(level);
+        Instant modified = profilService.getModificationDate(extId);
+        if (request.checkNotModified(ETags.weak(extId, modified, level), modified.toEpochMilli())) {
+            return null;
+        }
+
         Profil profil = profilService.getProfil(extId);
 
         return ResponseEntity.ok(
@@ -2,29 +2,46 @@ package com.lennadi.eventbubble30.features.controller;
 
 import com.lennadi.eventbubble30.exceptions.ErrorCodes;
 import com.lennadi.eventbubble30.features.DTOLevel;
+import com.lennadi.eventbubble30.features.CursorPage;
 import com.lennadi.eventbubble30.features.IDTO;
 import com.lennadi.eventbubble30.features.db.EntityType;
 import com.lennadi.eventbubble30.features.db.Location;
 import com.lennadi.eventbubble30.features.db.entities.Benutzer;
 import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
 import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.search.EventClusters;
+import com.lennadi.eventbubble30.features.search.EventCursor;
 import com.lennadi.eventbubble30.features.service.DtoService;
 import com.lennadi.eventbubble30.logging.Audit;
 import com.lennadi.eventbubble30.logging.AuditLog;
+import com.lennadi.eventbubble30.security.token.FeedTokenService;
 import com.lennadi.eventbubble30.features.service.BenutzerService;
 import com.lennadi.eventbubble30.features.service.VeranstaltungService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.net.URI;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/events")
@@ -34,6 +51,7 @@ public class VeranstaltungController {
     private final VeranstaltungService veranstaltungService;
     private final BenutzerService benutzerService;
     private final DtoService dtoService;
+    private final FeedTokenService feedTokens;
 
     public record CreateVeranstaltungRequest(
             Instant termin,
@@ -58,7 +76,7 @@ public class VeranstaltungController {
             Double maxLat,
             Double maxLon,
 
-            // radius search (Quadrat glaube)
+            // radius search (exakter Umkreis über EventGeoIndex)
             Double nearLat,
             Double nearLon,
             Double radiusKm,
@@ -72,9 +90,17 @@ public class VeranstaltungController {
             VeranstaltungsRepository.OrderDir orderDir
     ) {}
 
+    /// mit If-None-Match: 304 ohne das Event zu laden (null als Rückgabe = Antwort ist schon fertig)
     @GetMapping("/{id}")
-    public IDTO getVeranstaltungById(@PathVariable String id, @RequestParam(defaultValue = "FULL") DTOLevel level) {
-        return dtoService.get(veranstaltungService.getVeranstaltungById(id),benutzerService.isEventBookmarked(id), level);
+    public IDTO getVeranstaltungById(@PathVariable String id, @RequestParam(defaultValue = "FULL") DTOLevel level,
+                                     WebRequest request) {
+        dtoService.checkLevel(level);
+        if (request.checkNotModified(veranstaltungService.etag(id, level))) {
+            return null;
+        }
+
+        Veranstaltung v = veranstaltungService.getVeranstaltungById(id);
+        return dtoService.get(v,benutzerService.isEventBookmarked(v), level);
     }
 
     @Audit(action = AuditLog.Action.DELETE, resourceType = EntityType.EVENT, resourceIdParam = "id")
@@ -99,7 +125,7 @@ public class VeranstaltungController {
 
         return ResponseEntity
                 .created(URI.create("/api/events/" + vs.getExternalId()))
-                .body(dtoService.get(vs,benutzerService.isEventBookmarked(vs.getExternalId())));
+                .body(dtoService.get(vs,benutzerService.isEventBookmarked(vs)));
     }
 
     @Audit(action = AuditLog.Action.UPDATE, resourceType = EntityType.EVENT, resourceIdParam = "id")
@@ -118,7 +144,7 @@ public class VeranstaltungController {
 
         return ResponseEntity
                 .ok()
-                .body(dtoService.get(vs,benutzerService.isEventBookmarked(vs.getExternalId())));
+                .body(dtoService.get(vs,benutzerService.isEventBookmarked(vs)));
     }
 
     @GetMapping({"", "/"})
@@ -143,9 +169,163 @@ public class VeranstaltungController {
                 q, city, bbox, near, from, to, owner, orderBy, orderDir
         );
 
-        return veranstaltungService
-                .search(search, page, size)
-                .map(v->dtoService.get(v,benutzerService.isEventBookmarked(v.getExternalId()),DTOLevel.CARD));
+        Page<VeranstaltungsRepository.CardRow> result = veranstaltungService.search(search, page, size);
+
+        return new PageImpl<>(
+                toCards(result.getContent()),
+                result.getPageable(),
+                result.getTotalElements()
+        );
+    }
+
+    /**
+     * Keyset-Variante für Infinite Scroll: {@code ?cursor=} (leer) für die erste Seite, danach immer den
+     * {@code nextCursor} der letzten Antwort mitschicken. Kein count, kein OFFSET.
+     */
+    @GetMapping(value = {"", "/"}, params = "cursor")
+    public CursorPage listVeranstaltungenAfter(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false) String near,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String owner,
+            @RequestParam(defaultValue = "termin") VeranstaltungsRepository.OrderBy orderBy,
+            @RequestParam(defaultValue = "asc") VeranstaltungsRepository.OrderDir orderDir,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        if(size<1)badRequest("Page Size must be >= 1");
+        if(size>MAX_PAGE_SIZE)badRequest("Page Size exceeds max of " + MAX_PAGE_SIZE);
+
+        EventSearch search = parseSearch(
+                q, city, bbox, near, from, to, owner, orderBy, orderDir
+        );
+
+        EventCursor after = null;
+        if (!cursor.isBlank()) {
+            try {
+                after = EventCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                badRequest("cursor is invalid");
+            }
+            if (after.orderBy() != orderBy || after.orderDir() != orderDir) {
+                badRequest("cursor does not match orderBy/orderDir");
+            }
+        }
+
+        Slice<VeranstaltungsRepository.CardRow> slice = veranstaltungService.searchAfter(search, after, size);
+        List<VeranstaltungsRepository.CardRow> rows = slice.getContent();
+
+        String next = slice.hasNext()
+                ? EventCursor.after(rows.get(rows.size() - 1), orderBy, orderDir).encode()
+                : null;
+
+        return new CursorPage(
+                toCards(rows),
+                size,
+                slice.hasNext(),
+                next
+        );
+    }
+
+    /**
+     * @param event Card, {@code null} bei {@code deleted}
+     */
+    public record Change(String id, boolean deleted, Instant modificationDate, IDTO event) {}
+
+    /**
+     * @param nextCursor immer gesetzt (außer es gab noch nie Änderungen), beim nächsten Sync als {@code since} mitschicken
+     */
+    public record ChangesPage(List<Change> changes, boolean hasMore, String nextCursor) {}
+
+    private static final int MAX_SYNC_SIZE = 500;
+
+    /**
+     * Delta-Sync für Offline-Clients und Partner-Caches: ohne {@code since} alles von Anfang an, danach nur was sich
+     * seit dem letzten Cursor geändert hat, gelöschte Events als Tombstones. Solange {@code hasMore}, sofort weiterholen.
+     * Ist der Cursor älter als {@code purge.retention}, kommt 410 und der Client muss neu von vorne syncen.
+     */
+    @GetMapping("/changes")
+    public ChangesPage changes(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        if(size<1)badRequest("Page Size must be >= 1");
+        if(size>MAX_SYNC_SIZE)badRequest("Page Size exceeds max of " + MAX_SYNC_SIZE);
+
+        EventCursor after = null;
+        if (since != null && !since.isBlank()) {
+            try {
+                after = EventCursor.decode(since);
+            } catch (IllegalArgumentException e) {
+                badRequest("since is invalid");
+            }
+            // modificationDate ist nie null, ein Cursor ohne Wert kann also nicht von /changes stammen
+            if (after.orderBy() != VeranstaltungsRepository.OrderBy.modificationDate
+                    || after.orderDir() != VeranstaltungsRepository.OrderDir.asc
+                    || after.value() == null) {
+                badRequest("since is not a changes cursor");
+            }
+        }
+
+        Slice<VeranstaltungsRepository.ChangeRow> slice = veranstaltungService.changes(after, size);
+        List<VeranstaltungsRepository.ChangeRow> rows = slice.getContent();
+
+        Map<Long, VeranstaltungsRepository.CardRow> cards = veranstaltungService.changedCards(rows);
+        Set<Long> bookmarked = benutzerService.bookmarkedAmong(cards.keySet());
+
+        List<Change> changes = new ArrayList<>(rows.size());
+        for (VeranstaltungsRepository.ChangeRow r : rows) {
+            if (r.deleted()) {
+                changes.add(new Change(r.externalId(), true, r.modificationDate(), null));
+                continue;
+            }
+            VeranstaltungsRepository.CardRow card = cards.get(r.id());
+            if (card == null) continue; // inzwischen gelöscht, kommt beim nächsten Sync als Tombstone
+            changes.add(new Change(r.externalId(), false, r.modificationDate(), dtoService.get(card, bookmarked.contains(r.id()))));
+        }
+
+        String next = since;
+        if (!rows.isEmpty()) {
+            VeranstaltungsRepository.ChangeRow last = rows.get(rows.size() - 1);
+            next = new EventCursor(
+                    VeranstaltungsRepository.OrderBy.modificationDate, VeranstaltungsRepository.OrderDir.asc,
+                    last.modificationDate(), last.id()
+            ).encode();
+        }
+
+        return new ChangesPage(changes, slice.hasNext(), next);
+    }
+
+    /**
+     * Aggregierte Marker für die Karte statt einzelner Cards, Größe der Antwort unabhängig von der Eventanzahl.
+     * Bei zu großer bbox für den Zoom wird gröber geclustert, siehe {@code zoom} in der Antwort.
+     */
+    @GetMapping("/clusters")
+    public EventClusters.Result clusters(
+            @RequestParam String bbox,
+            @RequestParam int zoom,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to
+    ) {
+        if(zoom<0 || zoom>EventClusters.MAX_ZOOM)badRequest("zoom must be between 0 and " + EventClusters.MAX_ZOOM);
+
+        EventSearch search = parseSearch(
+                q, null, bbox, null, from, to, null,
+                VeranstaltungsRepository.OrderBy.termin, VeranstaltungsRepository.OrderDir.asc
+        );
+
+        return veranstaltungService.clusters(search, zoom);
+    }
+
+    private List<IDTO> toCards(List<VeranstaltungsRepository.CardRow> rows) {
+        return dtoService.getCardsFromRows(
+                rows,
+                benutzerService.bookmarkedAmong(rows.stream().map(VeranstaltungsRepository.CardRow::id).toList())
+        );
     }
 
     private static final double MAX_RADIUS_KM = 100.0;
@@ -256,15 +436,65 @@ public class VeranstaltungController {
                 .body(icsData);
     }
 
+    /**
+     * Abonnierbarer Kalender zu einer Suche (gleiche Filter wie die Liste, ohne Paging, höchstens {@code ics.max-events}).
+     * Ohne {@code from} ab jetzt minus {@code ics.past-window}, damit kommende Events nicht hinter alten am Limit scheitern.
+     * Unterstützt If-None-Match/If-Modified-Since, Kalender-Apps pollen regelmäßig.
+     */
+    @GetMapping("/feed.ics")
+    public void feed(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String bbox,
+            @RequestParam(required = false) String near,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String owner,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        EventSearch search = parseSearch(
+                q, city, bbox, near, from, to, owner,
+                VeranstaltungsRepository.OrderBy.termin, VeranstaltungsRepository.OrderDir.asc
+        );
+        writeFeed(veranstaltungService.feedSpec(search), "EventBubble", request, response);
+    }
+
+    /// Merkliste als Kalender-Abo, Link kommt von {@code GET /api/user/me/bookmarked/feed}
+    @GetMapping("/feeds/bookmarks.ics")
+    public void bookmarksFeed(
+            @RequestParam String user,
+            @RequestParam String token,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        if (!feedTokens.isValid(user, token)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "invalid feed token");
+        }
+        writeFeed(veranstaltungService.bookmarkFeedSpec(user), "EventBubble Merkliste", request, response);
+    }
+
+    private void writeFeed(Specification<Veranstaltung> spec, String name,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        VeranstaltungsRepository.FeedState state = veranstaltungService.feedState(spec);
+        if (new ServletWebRequest(request, response).checkNotModified(state.etag(), state.lastModifiedMillis())) {
+            return; // 304, Header sind gesetzt
+        }
+
+        response.setContentType("text/calendar; charset=utf-8");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        veranstaltungService.writeFeed(spec, response.getWriter(), name);
+    }
+
     @PostMapping("/{id}/bookmark")
     public IDTO bookmark(@PathVariable String id) {
         Veranstaltung v = veranstaltungService.getVeranstaltungById(id);
-        return dtoService.get(veranstaltungService.bookmark(v, true),benutzerService.isEventBookmarked(v.getExternalId()));
+        return dtoService.get(veranstaltungService.bookmark(v, true),benutzerService.isEventBookmarked(v));
     }
 
     @DeleteMapping("/{id}/bookmark")
     public IDTO unbookmark(@PathVariable String id) {
         Veranstaltung v = veranstaltungService.getVeranstaltungById(id);
-        return dtoService.get(veranstaltungService.bookmark(v, false),benutzerService.isEventBookmarked(v.getExternalId()));
+        return dtoService.get(veranstaltungService.bookmark(v, false),benutzerService.isEventBookmarked(v));
     }
 }
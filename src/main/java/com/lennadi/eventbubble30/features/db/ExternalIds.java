@@ -0,0 +1,60 @@
+package com.lennadi.eventbubble30.features.db;
+
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Externe Ids: UUIDv7 (RFC 9562), also zeitlich sortiert. Neue Zeilen landen im Unique-Index auf {@code external_id}
+ * immer hinten statt zufällig verteilt (weniger Page-Splits, heiße Seiten bleiben im Cache).
+ * <p>
+ * Gespeichert wird immer klein geschrieben ({@link UUID#toString()}), das gilt auch für die alten v4-Ids.
+ * Eingaben deshalb mit {@link #normalize} angleichen statt {@code lower()} in SQL, dann greift der Index direkt.
+ */
+public final class ExternalIds {
+    private ExternalIds() {}
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static long lastMillis = -1;
+    private static int sequence;
+
+    public static String next() {
+        return uuid7().toString();
+    }
+
+    /**
+     * 48 Bit Unix-Millis, Version 7, 12 Bit Zähler (innerhalb derselben Millisekunde monoton, Start zufällig),
+     * Variante, 62 Bit Zufall.
+     */
+    public static UUID uuid7() {
+        long millis;
+        int seq;
+        synchronized (ExternalIds.class) {
+            millis = Math.max(System.currentTimeMillis(), lastMillis);
+            if (millis == lastMillis) {
+                sequence++;
+                if (sequence > 0xFFF) { // Zähler voll: in die nächste Millisekunde ausweichen
+                    millis++;
+                    sequence = RANDOM.nextInt(0x800);
+                }
+            } else {
+                sequence = RANDOM.nextInt(0x800); // obere Hälfte frei lassen, damit der Zähler Luft hat
+            }
+            lastMillis = millis;
+            seq = sequence;
+        }
+
+        long msb = (millis & 0xFFFF_FFFF_FFFFL) << 16
+                | 0x7000L
+                | seq;
+        long lsb = (RANDOM.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL)
+                | 0x8000_0000_0000_0000L;
+        return new UUID(msb, lsb);
+    }
+
+    /// so wie gespeichert: getrimmt und klein
+    public static String normalize(String externalId) {
+        return externalId == null ? null : externalId.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,62 @@
+package com.lennadi.eventbubble30.features.db;
+
+import com.lennadi.eventbubble30.features.db.entities.BaseEntity;
+import com.lennadi.eventbubble30.logging.AuditLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bis {@link BaseEntity} (und {@link AuditLog}) auf eine Sequence umgestellt wurden, kamen die Ids aus IDENTITY-Spalten.
+ * Eine per ddl-auto neu angelegte Sequence startet bei 1 und würde mit den alten Ids kollidieren, deshalb wird sie beim
+ * Start einmal hinter die höchste vorhandene Id gesetzt. Läuft vor dem Webserver-Start, also vor allen Inserts.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdSequenceAlignment {
+
+    /// Sequence -> alle Tabellen, deren Ids daraus kommen
+    private static final Map<String, List<String>> SEQUENCES = Map.of(
+            BaseEntity.ID_SEQUENCE, List.of("benutzer", "veranstaltung"),
+            AuditLog.ID_SEQUENCE, List.of("audit_log")
+    );
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbc;
+    private final EntityManagerFactory emf;
+
+    @PostConstruct
+    public void align() {
+        SEQUENCES.forEach(this::align);
+    }
+
+    private void align(String sequence, List<String> tables) {
+        long max = 0;
+        for (String table : tables) {
+            Long m = jdbc.queryForObject("select max(id) from " + table, Long.class);
+            if (m != null) max = Math.max(max, m);
+        }
+        if (max == 0) return;
+
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        Long next = jdbc.queryForObject(
+                dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class
+        );
+
+        // pooled-Optimizer: ein Wert n deckt die Ids (n - allocationSize, n] ab
+        if (next != null && next - ALLOCATION_SIZE >= max) return;
+
+        long restart = max + ALLOCATION_SIZE + 1;
+        jdbc.execute("alter sequence " + sequence + " restart with " + restart);
+        log.info("Id sequence {} moved behind existing ids (max {}), restarts at {}", sequence, max, restart);
+    }
+}
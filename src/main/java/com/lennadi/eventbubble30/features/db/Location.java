@@ -1,5 +1,6 @@
 package com.lennadi.eventbubble30.features.db;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import lombok.Getter;
@@ -25,6 +26,11 @@ public class Location {
     @Column(name = "location_city")
     private String city;
 
+    /// kanonischer Schlüssel für den Stadt-Filter, wird vom Gazetteer gesetzt
+    @JsonIgnore
+    @Column(name = "location_city_key")
+    private String cityKey;
+
     @Column(name = "location_postal_code")
     private String postalCode;
 
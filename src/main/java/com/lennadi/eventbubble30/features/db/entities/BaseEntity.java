@@ -1,20 +1,24 @@
 package com.lennadi.eventbubble30.features.db.entities;
 
 import com.lennadi.eventbubble30.features.db.EntityType;
+import com.lennadi.eventbubble30.features.db.ExternalIds;
 import jakarta.persistence.*;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.time.Instant;
-import java.util.UUID;
 
 @MappedSuperclass
 @Getter
 @Setter
 public abstract class BaseEntity {
+    public static final String ID_SEQUENCE = "base_entity_seq";
+
+    /// Sequence statt IDENTITY, damit Hibernate Inserts batchen kann (Bulk-Import). Siehe IdSequenceAlignment.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SequenceGenerator(name = BaseEntity.ID_SEQUENCE, sequenceName = BaseEntity.ID_SEQUENCE, allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = BaseEntity.ID_SEQUENCE)
     @Column(name = "id", unique = true, nullable = false, updatable = false)
     @Setter(AccessLevel.NONE)
     private Long id;
@@ -31,12 +35,14 @@ public abstract class BaseEntity {
     @Setter(AccessLevel.NONE)
     private Instant modificationDate;
 
+    /// Soft Delete: Entities mit {@code @SQLRestriction("deleted_at is null")} sind danach für JPQL/Criteria unsichtbar
     @Column(name = "deleted_at")
-    private Instant deletedAt;//todo Logik
+    @Setter(AccessLevel.NONE)
+    private Instant deletedAt;
 
     @PrePersist
     protected void onCreate() {
-        if (externalId == null) externalId = UUID.randomUUID().toString();
+        if (externalId == null) externalId = ExternalIds.next();
         this.creationDate = Instant.now();
         this.modificationDate = Instant.now();
     }
@@ -2,10 +2,12 @@ package com.lennadi.eventbubble30.features.db.entities;
 
 import com.lennadi.eventbubble30.features.IDTO;
 import com.lennadi.eventbubble30.features.db.EntityType;
+import com.lennadi.eventbubble30.security.token.TokenValidationCache;
 import jakarta.persistence.*;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.Instant;
 import java.util.*;
@@ -13,11 +15,14 @@ import java.util.*;
 @Entity
 @Getter
 @Setter
+@SQLRestriction("deleted_at is null")
+@EntityListeners(TokenValidationCache.EvictionListener.class)
 @Table(indexes = {
         @Index(name = "idx_user_external_id", columnList = "external_id"),
         @Index(name = "idx_username", columnList = "username"),
         @Index(name = "idx_email", columnList = "email"),
-        @Index(name = "idx_verification_token", columnList = "verification_token")
+        @Index(name = "idx_verification_token", columnList = "verification_token"),
+        @Index(name = "idx_user_deleted", columnList = "deleted_at")
 })
 public class Benutzer extends BaseEntity{
     public static final EntityType TYPE = EntityType.USER;
@@ -89,6 +94,8 @@ public class Benutzer extends BaseEntity{
 
     public record DTO(String id, String username, Set<Role> roles) implements IDTO { }
 
+    public record CardDTO(String id, String username) implements IDTO { }
+
     public record ModDTO(
             String id, String username, Set<Role> roles,
             String email, boolean emailVerified,
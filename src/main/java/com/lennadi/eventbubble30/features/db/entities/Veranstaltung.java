@@ -6,6 +6,8 @@ import com.lennadi.eventbubble30.features.db.Location;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.Instant;
 
@@ -17,12 +19,15 @@ import java.time.Instant;
                 @Index(name = "idx_event_created", columnList = "creation_date"),
                 @Index(name = "idx_event_modified", columnList = "modification_date"),
                 @Index(name = "idx_event_owner", columnList = "besitzer_id"),
-                @Index(name = "idx_event_city", columnList = "location_city"),
+                @Index(name = "idx_event_city_key", columnList = "location_city_key"),
                 @Index(name = "idx_event_lat_lon", columnList = "location_latitude,location_longitude"),
                 @Index(name = "idx_event_title", columnList = "title"),
-                @Index(name = "idx_event_external_id", columnList = "external_id")
+                @Index(name = "idx_event_external_id", columnList = "external_id"),
+                @Index(name = "idx_event_popularity", columnList = "bookmark_count desc,termin,id"),
+                @Index(name = "idx_event_deleted", columnList = "deleted_at")
         }
 )
+@SQLRestriction("deleted_at is null")
 @Getter @Setter
 public class Veranstaltung extends BaseEntity {
     public static final EntityType TYPE = EntityType.EVENT;
@@ -39,6 +44,11 @@ public class Veranstaltung extends BaseEntity {
     @Embedded
     private Location location;
 
+    /// materialisiert, wird gebündelt von BookmarkCountService geschrieben
+    @ColumnDefault("0")
+    @Column(name = "bookmark_count", nullable = false)
+    private long bookmarkCount = 0;
+
     @Override
     public EntityType getType() {
         return TYPE;
@@ -46,17 +56,17 @@ public class Veranstaltung extends BaseEntity {
 
 
     public record DTO(
-            String id, String title, Instant termin, IDTO besitzer, Location location, boolean bookmarked,
+            String id, String title, Instant termin, IDTO besitzer, Location location, boolean bookmarked, long bookmarks,
             String description, Instant creationDate
 
     ) implements IDTO {}
 
     public record CardDTO(
-            String id, String title, Instant termin, IDTO besitzer, Location location, boolean bookmarked
+            String id, String title, Instant termin, IDTO besitzer, Location location, boolean bookmarked, long bookmarks
     ) implements IDTO {}
 
     public record ModDTO(
-            String id, String title, Instant termin, IDTO besitzer, Location location, boolean bookmarked,
+            String id, String title, Instant termin, IDTO besitzer, Location location, boolean bookmarked, long bookmarks,
             String description, Instant creationDate,
             Instant modificationDate
 
@@ -2,6 +2,7 @@ package com.lennadi.eventbubble30.features.db.entities.tickets;
 
 import com.lennadi.eventbubble30.features.IDTO;
 import com.lennadi.eventbubble30.features.db.EntityType;
+import com.lennadi.eventbubble30.features.db.ExternalIds;
 import com.lennadi.eventbubble30.features.db.entities.Benutzer;
 import jakarta.persistence.*;
 import lombok.AccessLevel;
@@ -10,7 +11,6 @@ import lombok.Setter;
 
 import java.time.Instant;
 import java.util.Map;
-import java.util.UUID;
 
 @Inheritance(strategy = InheritanceType.JOINED)
 @Setter @Getter
@@ -88,7 +88,7 @@ public class Ticket{
 
     @PrePersist
     protected void onCreate() {
-        if (externalId == null) externalId = UUID.randomUUID().toString();
+        if (externalId == null) externalId = ExternalIds.next();
         this.creationDate = Instant.now();
         this.modificationDate = Instant.now();
     }
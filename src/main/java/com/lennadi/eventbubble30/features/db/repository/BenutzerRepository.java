@@ -1,5 +1,6 @@
 package com.lennadi.eventbubble30.features.db.repository;
 
+import com.lennadi.eventbubble30.features.db.ExternalIds;
 import com.lennadi.eventbubble30.features.db.entities.Benutzer;
 import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
 import jakarta.validation.constraints.NotBlank;
@@ -17,14 +18,40 @@ import java.util.Set;
 public interface BenutzerRepository extends JpaRepository<Benutzer, Long> {
     public Optional<Benutzer> findByUsernameIgnoreCase(String username);
 
-    public Optional<Benutzer> findByExternalIdIgnoreCase(String externalId);
+    public Optional<Benutzer> findByExternalId(String externalId);
+
+    /// external_id ist immer klein gespeichert: Eingabe normalisieren statt lower() in SQL, damit der Unique-Index greift
+    default Optional<Benutzer> findByExternalIdIgnoreCase(String externalId) {
+        return findByExternalId(ExternalIds.normalize(externalId));
+    }
     public Optional<Benutzer> findByEmailIgnoreCase(@NotBlank String username);
 
+    /// Login mit E-Mail oder Benutzername in einer Query, ein Treffer per E-Mail gewinnt
+    @Query("""
+        select b from Benutzer b
+        where lower(b.email) = lower(:login) or lower(b.username) = lower(:login)
+        order by case when lower(b.email) = lower(:login) then 0 else 1 end
+    """)
+    List<Benutzer> findAllByLogin(@Param("login") String login);
+
+    default Optional<Benutzer> findByLogin(String login) {
+        return findAllByLogin(login).stream().findFirst();
+    }
+
     boolean existsByEmail(String email);
     boolean existsByUsernameIgnoreCase(String username);
 
     boolean existsByIdAndBookmarkedVeranstaltungen_ExternalId(Long userId, String eventExternalId);
 
+    /// Welche der übergebenen Events hat der Nutzer gemerkt? Direkt auf der Join-Tabelle, ohne Veranstaltung zu joinen.
+    @Query(value = """
+        select bv.veranstaltung_id
+        from benutzer_bookmarked_veranstaltungen bv
+        where bv.benutzer_id = :userId
+          and bv.veranstaltung_id in (:eventIds)
+        """, nativeQuery = true)
+    Set<Long> findBookmarkedEventIdsAmong(@Param("userId") Long userId, @Param("eventIds") Collection<Long> eventIds);
+
     @Query("""
         select v
         from Benutzer b join b.bookmarkedVeranstaltungen v
@@ -52,10 +79,6 @@ public interface BenutzerRepository extends JpaRepository<Benutzer, Long> {
 
     Optional<Benutzer> findByVerificationToken(String token);
 
-    @Modifying
-    @Query("UPDATE Benutzer b SET b.lastSeen = :ts WHERE b.id = :id")
-    void updateLastSeen(@Param("id") Long id, @Param("ts") Instant ts);
-
     @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Query("""
 DELETE FROM Benutzer b
@@ -2,7 +2,10 @@ package com.lennadi.eventbubble30.features.db.repository;
 
 import com.lennadi.eventbubble30.features.db.entities.Profil;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.Optional;
 
 public interface ProfilRepository extends JpaRepository<Profil, Long> {
@@ -11,4 +14,7 @@ public interface ProfilRepository extends JpaRepository<Profil, Long> {
     boolean existsByExternalId(String extId);
     Optional<Profil> getProfilByExternalId(String extId);
     void deleteByExternalId(String extId);
+
+    @Query("select p.modificationDate from Profil p where p.externalId = :extId")
+    Optional<Instant> findModificationDate(@Param("extId") String extId);
 }
@@ -1,24 +1,214 @@
 package com.lennadi.eventbubble30.features.db.repository;
 
+import com.lennadi.eventbubble30.features.db.ExternalIds;
+import com.lennadi.eventbubble30.features.db.Location;
 import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.search.EventGeoIndex;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface VeranstaltungsRepository extends
         JpaRepository<Veranstaltung, Long>,
-        JpaSpecificationExecutor<Veranstaltung> {
+        JpaSpecificationExecutor<Veranstaltung>,
+        VeranstaltungsRepositoryCustom {
 
-    Optional<Veranstaltung> findByExternalIdIgnoreCase(String externalId);
+    Optional<Veranstaltung> findByExternalId(String externalId);
+
+    /// external_id ist immer klein gespeichert: Eingabe normalisieren statt lower() in SQL, damit der Unique-Index greift
+    default Optional<Veranstaltung> findByExternalIdIgnoreCase(String externalId) {
+        return findByExternalId(ExternalIds.normalize(externalId));
+    }
+
+    interface GeoRow {
+        Long getId();
+        Double getLatitude();
+        Double getLongitude();
+        Instant getTermin();
+    }
+
+    @Query("""
+        select v.id as id, v.location.latitude as latitude, v.location.longitude as longitude, v.termin as termin
+        from Veranstaltung v
+        where v.location.latitude is not null and v.location.longitude is not null
+        """)
+    List<GeoRow> findAllGeoRows();
+
+    interface CityRow {
+        Long getId();
+        String getCity();
+    }
+
+    @Query("""
+        select v.id as id, v.location.city as city
+        from Veranstaltung v
+        where v.location.city is not null and v.location.cityKey is null and v.id > :after
+        order by v.id
+        """)
+    List<CityRow> findCityRowsWithoutKeyAfter(@Param("after") long after, Pageable pageable);
+
+    /// mehrere Events mit demselben cityKey auf einmal, Transaktion macht der Aufrufer (eine pro Seite)
+    @Modifying
+    @Query("update Veranstaltung v set v.location.cityKey = :cityKey where v.id in :ids")
+    int updateCityKeys(@Param("ids") Collection<Long> ids, @Param("cityKey") String cityKey);
+
+    @Query("select v.id from Veranstaltung v where v.besitzer.id = :ownerId")
+    List<Long> findIdsByOwner(@Param("ownerId") Long ownerId);
+
+    /// alle Events eines gelöschten Benutzers in einem Statement soft-löschen (Tombstones für den Delta-Sync)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        update Veranstaltung v set v.deletedAt = :now, v.modificationDate = :now
+        where v.besitzer.id = :ownerId and v.deletedAt is null
+    """)
+    int softDeleteByOwner(@Param("ownerId") Long ownerId, @Param("now") Instant now);
+
+    /// alles, was sich an GET /api/events/{id} ändern kann, ohne das Event zu laden (für den ETag)
+    interface VersionRow {
+        Long getId();
+        Instant getModificationDate();
+        Instant getOwnerModificationDate();
+        Long getBookmarkCount();
+    }
+
+    @Query("""
+        select v.id as id, v.modificationDate as modificationDate,
+               b.modificationDate as ownerModificationDate, v.bookmarkCount as bookmarkCount
+        from Veranstaltung v left join v.besitzer b
+        where v.externalId = :extId
+    """)
+    Optional<VersionRow> findVersionByNormalizedId(@Param("extId") String extId);
+
+    default Optional<VersionRow> findVersion(String extId) {
+        return findVersionByNormalizedId(ExternalIds.normalize(extId));
+    }
+
+    /// nur die Besitzer-Id, für Authz-Prüfungen ohne das Event zu laden
+    @Query("select v.besitzer.id from Veranstaltung v where v.externalId = :extId")
+    Optional<Long> findOwnerIdByNormalizedId(@Param("extId") String extId);
+
+    default Optional<Long> findOwnerId(String extId) {
+        return findOwnerIdByNormalizedId(ExternalIds.normalize(extId));
+    }
+
+    interface IdRow {
+        Long getId();
+        String getExternalId();
+    }
+
+    @Query("select v.id as id, v.externalId as externalId from Veranstaltung v where v.id in :ids")
+    List<IdRow> findExternalIds(@Param("ids") Collection<Long> ids);
+
+    interface TextRow {
+        Long getId();
+        String getTitle();
+        String getDescription();
+    }
+
+    @Query("""
+        select v.id as id, v.title as title, v.description as description
+        from Veranstaltung v
+        where v.id > :after
+        order by v.id
+        """)
+    List<TextRow> findTextRowsAfter(@Param("after") long after, Pageable pageable);
+
+    /// flache Zeile für Listen/Cards, siehe {@link VeranstaltungsRepositoryCustom#findCards}
+    record CardRow(
+            Long id, String externalId, String title, Instant termin,
+            Instant creationDate, Instant modificationDate, Long bookmarkCount,
+            String ownerExternalId, String ownerUsername,
+            String locDisplayName, Double locLatitude, Double locLongitude,
+            String locStreet, String locCity, String locPostalCode, String locCountry,
+            String locExternalSource, String locExternalId
+    ) {
+        /// wie Hibernate beim @Embedded: alle Spalten null -> keine Location
+        public Location location() {
+            if (locDisplayName == null && locLatitude == null && locLongitude == null
+                    && locStreet == null && locCity == null && locPostalCode == null && locCountry == null
+                    && locExternalSource == null && locExternalId == null) return null;
+
+            Location l = new Location();
+            l.setDisplayName(locDisplayName);
+            l.setLatitude(locLatitude);
+            l.setLongitude(locLongitude);
+            l.setStreet(locStreet);
+            l.setCity(locCity);
+            l.setPostalCode(locPostalCode);
+            l.setCountry(locCountry);
+            l.setExternalSource(locExternalSource);
+            l.setExternalId(locExternalId);
+            return l;
+        }
+    }
+
+    /// Spalten für einen VEVENT, siehe {@link VeranstaltungsRepositoryCustom#streamIcsRows}
+    record IcsRow(
+            String externalId, String title, String description,
+            Instant termin, Instant modificationDate,
+            String locDisplayName, String locStreet, String locPostalCode, String locCity, String locCountry,
+            Double locLatitude, Double locLongitude
+    ) {
+        public static IcsRow of(Veranstaltung v) {
+            Location l = v.getLocation();
+            return new IcsRow(
+                    v.getExternalId(), v.getTitle(), v.getDescription(),
+                    v.getTermin(), v.getModificationDate(),
+                    l != null ? l.getDisplayName() : null,
+                    l != null ? l.getStreet() : null,
+                    l != null ? l.getPostalCode() : null,
+                    l != null ? l.getCity() : null,
+                    l != null ? l.getCountry() : null,
+                    l != null ? l.getLatitude() : null,
+                    l != null ? l.getLongitude() : null
+            );
+        }
+    }
+
+    /**
+     * Stand eines Feeds für Conditional GET. count und idSum fangen auch entfernte/hinzugekommene ältere Events ab,
+     * die max(modificationDate) nicht ändern.
+     */
+    record FeedState(Instant lastModified, long count, long idSum) {
+        public String etag() {
+            return "W/\"" + (lastModified != null ? lastModified.toEpochMilli() : 0) + "-" + count + "-" + idSum + "\"";
+        }
+
+        public long lastModifiedMillis() {
+            return lastModified != null ? lastModified.toEpochMilli() : -1;
+        }
+    }
+
+    /// eine Zeile im Delta-Sync, {@code deletedAt != null} = Tombstone
+    record ChangeRow(Long id, String externalId, Instant modificationDate, Instant deletedAt) {
+        public boolean deleted() {
+            return deletedAt != null;
+        }
+    }
 
     public enum OrderBy {
         creationDate,
         modificationDate,
-        termin
+        termin,
+        relevance, // nur mit q (immer beste zuerst), sonst termin
+        popularity // bookmarkCount, bei Gleichstand nach termin
     }
 
     public enum OrderDir {
@@ -39,13 +229,11 @@ public interface VeranstaltungsRepository extends
             };
         }
 
-        public static Specification<Veranstaltung> inCity(String city) {//todo zu instabil (Köln, koeln, köln, cologne etc) -> stattdessen plz oder so?
+        /// cityKey kommt aus Gazetteer.cityKey, Gleichheit auf der indizierten Spalte
+        public static Specification<Veranstaltung> inCity(String cityKey) {
             return (root, query, cb) -> {
-                if (city == null) return null;
-                return cb.equal(
-                        cb.lower(root.get("location").get("city")),
-                        city.toLowerCase()
-                );
+                if (cityKey == null) return null;
+                return cb.equal(root.get("location").get("cityKey"), cityKey);
             };
         }
 
@@ -85,17 +273,97 @@ public interface VeranstaltungsRepository extends
                 Path<Double> latExpr = root.get("location").get("latitude");
                 Path<Double> lonExpr = root.get("location").get("longitude");
 
-                return cb.and(
+                Predicate box = cb.and(
                         cb.between(latExpr, minLat, maxLat),
                         cb.between(lonExpr, minLon, maxLon)
                 );
+
+                // Box für den Index, dann exakt per Haversine: a = sin²(Δφ/2) + cos φ1·cos φ2·sin²(Δλ/2) <= sin²(d/2R)
+                double half = radiusKm / (2 * EventGeoIndex.EARTH_RADIUS_KM);
+                if (half >= Math.PI / 2) return box;
+
+                double toRad = Math.PI / 180;
+                Expression<Double> sinDLat = cb.function("sin", Double.class,
+                        cb.prod(cb.diff(latExpr, lat), toRad / 2));
+                Expression<Double> sinDLon = cb.function("sin", Double.class,
+                        cb.prod(cb.diff(lonExpr, lon), toRad / 2));
+                Expression<Double> cosLat = cb.function("cos", Double.class, cb.prod(latExpr, toRad));
+
+                Expression<Double> a = cb.sum(
+                        cb.prod(sinDLat, sinDLat),
+                        cb.prod(cb.prod(cosLat, Math.cos(lat * toRad)), cb.prod(sinDLon, sinDLon))
+                );
+                double sinHalf = Math.sin(half);
+                return cb.and(box, cb.le(a, sinHalf * sinHalf));
+            };
+        }
+
+        public static Specification<Veranstaltung> idIn(Collection<Long> ids) {
+            return (root, query, cb) -> {
+                if (ids == null) return null;
+                if (ids.isEmpty()) return cb.disjunction();
+                return root.get("id").in(ids);
             };
         }
 
+        /**
+         * Seek-Prädikat für Keyset-Pagination: alles hinter (lastValue, lastId) in Sortierrichtung, als einfacher
+         * Bereich auf (Sortierfeld, id), den der Index auf dem Sortierfeld bedienen kann. Ohne lastId: erste Seite.
+         * Zeilen ohne Wert im Sortierfeld (nur termin) gehören nicht dazu, die holt {@link #seekNull} danach.
+         */
+        public static Specification<Veranstaltung> seek(
+                OrderBy orderBy, OrderDir orderDir,
+                Instant lastValue, Long lastId
+        ) {
+            return (root, query, cb) -> {
+                Path<Instant> field = root.get(orderBy.name());
+                if (lastId == null) return cb.isNotNull(field);
+                if (lastValue == null) return cb.disjunction(); // Cursor steht schon in der Phase ohne Wert
+
+                Path<Long> id = root.get("id");
+                boolean asc = orderDir == OrderDir.asc;
+                return cb.or(
+                        asc ? cb.greaterThan(field, lastValue) : cb.lessThan(field, lastValue),
+                        cb.and(cb.equal(field, lastValue), asc ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId))
+                );
+            };
+        }
+
+        /// zweite Phase nach {@link #seek}: Zeilen ohne Wert im Sortierfeld, nach id in Sortierrichtung
+        public static Specification<Veranstaltung> seekNull(OrderBy orderBy, OrderDir orderDir, Long lastId) {
+            return (root, query, cb) -> {
+                Predicate isNull = cb.isNull(root.get(orderBy.name()));
+                if (lastId == null) return isNull;
+
+                Path<Long> id = root.get("id");
+                return cb.and(isNull, orderDir == OrderDir.asc ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId));
+            };
+        }
+
+        /// Sortierung passend zu {@link #seek}: Sortierfeld, dann id, beides in derselben Richtung
+        public static Sort seekOrder(String field, Sort.Direction direction) {
+            return Sort.by(direction, field, "id");
+        }
+
+        /// vom Benutzer gemerkte Events (Subquery auf die Join-Tabelle)
+        public static Specification<Veranstaltung> bookmarkedBy(Long userId) {
+            return (root, query, cb) -> {
+                Subquery<Long> sq = query.subquery(Long.class);
+                Root<Benutzer> b = sq.from(Benutzer.class);
+                Join<Benutzer, Veranstaltung> bv = b.join("bookmarkedVeranstaltungen");
+                sq.select(bv.get("id")).where(cb.equal(b.get("id"), userId));
+                return root.get("id").in(sq);
+            };
+        }
+
+        public static Specification<Veranstaltung> hasTermin() {
+            return (root, query, cb) -> cb.isNotNull(root.get("termin"));
+        }
+
         public static Specification<Veranstaltung> ownedBy(String userExtId) {
             return (root, query, cb) -> {
                 if (userExtId == null) return null;
-                return cb.equal(root.get("besitzer").get("externalId"), userExtId);
+                return cb.equal(root.get("besitzer").get("externalId"), ExternalIds.normalize(userExtId));
             };
         }
 
@@ -0,0 +1,39 @@
+package com.lennadi.eventbubble30.features.db.repository;
+
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/// Abfragen, die Spring Data nicht selbst ableiten kann (Criteria + Projektion), Implementierung in ...Impl
+public interface VeranstaltungsRepositoryCustom {
+
+    /**
+     * Wie {@code findAll(spec, ...)}, lädt aber nur die Spalten für eine Card direkt in {@link VeranstaltungsRepository.CardRow}
+     * (keine Entities, kein description, keine Rollen des Besitzers).
+     *
+     * @param limit max. Zeilen, {@code <= 0} = alle
+     */
+    List<VeranstaltungsRepository.CardRow> findCards(Specification<Veranstaltung> spec, Sort sort, long offset, int limit);
+
+    /**
+     * Zeilen für ICS-Feeds als Stream direkt vom DB-Cursor (read-only, Fetch-Size gesetzt).
+     * Muss in einer Transaktion konsumiert und geschlossen werden.
+     */
+    Stream<VeranstaltungsRepository.IcsRow> streamIcsRows(Specification<Veranstaltung> spec, Sort sort, int limit);
+
+    /// max(modificationDate), count und Summe der Ids, billig genug für jeden Conditional GET
+    VeranstaltungsRepository.FeedState feedState(Specification<Veranstaltung> spec);
+
+    /**
+     * Änderungen für den Delta-Sync in (modificationDate, id)-Reihenfolge, <b>inklusive</b> gelöschter Events
+     * (an der {@code @SQLRestriction} vorbei).
+     *
+     * @param since   exklusiv zusammen mit {@code afterId}
+     * @param until   inklusiv, obere Grenze für modificationDate
+     */
+    List<VeranstaltungsRepository.ChangeRow> findChanges(Instant since, long afterId, Instant until, int limit);
+}
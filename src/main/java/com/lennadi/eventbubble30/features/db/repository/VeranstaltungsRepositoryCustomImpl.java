@@ -0,0 +1,137 @@
+package com.lennadi.eventbubble30.features.db.repository;
+
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class VeranstaltungsRepositoryCustomImpl implements VeranstaltungsRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<VeranstaltungsRepository.CardRow> findCards(Specification<Veranstaltung> spec, Sort sort, long offset, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<VeranstaltungsRepository.CardRow> query = cb.createQuery(VeranstaltungsRepository.CardRow.class);
+        Root<Veranstaltung> root = query.from(Veranstaltung.class);
+        Join<Veranstaltung, Benutzer> owner = root.join("besitzer", JoinType.LEFT);
+        Path<Object> loc = root.get("location");
+
+        query.select(cb.construct(VeranstaltungsRepository.CardRow.class,
+                root.get("id"), root.get("externalId"), root.get("title"), root.get("termin"),
+                root.get("creationDate"), root.get("modificationDate"), root.get("bookmarkCount"),
+                owner.get("externalId"), owner.get("username"),
+                loc.get("displayName"), loc.get("latitude"), loc.get("longitude"),
+                loc.get("street"), loc.get("city"), loc.get("postalCode"), loc.get("country"),
+                loc.get("externalSource"), loc.get("externalId")
+        ));
+
+        Predicate where = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (where != null) query.where(where);
+
+        if (sort != null && sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+
+        TypedQuery<VeranstaltungsRepository.CardRow> q = em.createQuery(query);
+        if (offset > 0) q.setFirstResult(Math.toIntExact(offset));
+        if (limit > 0) q.setMaxResults(limit);
+
+        return q.getResultList();
+    }
+
+    @Override
+    public Stream<VeranstaltungsRepository.IcsRow> streamIcsRows(Specification<Veranstaltung> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<VeranstaltungsRepository.IcsRow> query = cb.createQuery(VeranstaltungsRepository.IcsRow.class);
+        Root<Veranstaltung> root = query.from(Veranstaltung.class);
+        Path<Object> loc = root.get("location");
+
+        query.select(cb.construct(VeranstaltungsRepository.IcsRow.class,
+                root.get("externalId"), root.get("title"), root.get("description"),
+                root.get("termin"), root.get("modificationDate"),
+                loc.get("displayName"), loc.get("street"), loc.get("postalCode"), loc.get("city"), loc.get("country"),
+                loc.get("latitude"), loc.get("longitude")
+        ));
+
+        Predicate where = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (where != null) query.where(where);
+
+        if (sort != null && sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+
+        TypedQuery<VeranstaltungsRepository.IcsRow> q = em.createQuery(query);
+        q.setHint(HibernateHints.HINT_FETCH_SIZE, 200);
+        q.setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (limit > 0) q.setMaxResults(limit);
+
+        return q.getResultStream();
+    }
+
+    @Override
+    public VeranstaltungsRepository.FeedState feedState(Specification<Veranstaltung> spec) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Veranstaltung> root = query.from(Veranstaltung.class);
+
+        query.multiselect(
+                cb.greatest(root.<Instant>get("modificationDate")),
+                cb.count(root),
+                cb.sum(root.<Long>get("id"))
+        );
+
+        Predicate where = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (where != null) query.where(where);
+
+        Tuple t = em.createQuery(query).getSingleResult();
+        Long count = t.get(1, Long.class);
+        Long idSum = t.get(2, Long.class);
+        return new VeranstaltungsRepository.FeedState(
+                t.get(0, Instant.class),
+                count != null ? count : 0,
+                idSum != null ? idSum : 0
+        );
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<VeranstaltungsRepository.ChangeRow> findChanges(Instant since, long afterId, Instant until, int limit) {
+        // nativ: JPQL/Criteria hängen immer "deleted_at is null" an, hier werden aber auch die Tombstones gebraucht
+        List<Object[]> rows = em.createNativeQuery("""
+                        select id, external_id, modification_date, deleted_at
+                        from veranstaltung
+                        where (modification_date > :since or (modification_date = :since and id > :afterId))
+                          and modification_date <= :until
+                        order by modification_date, id
+                        """)
+                .setParameter("since", since)
+                .setParameter("afterId", afterId)
+                .setParameter("until", until)
+                .setMaxResults(limit)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.LONG)
+                .addScalar("external_id", StandardBasicTypes.STRING)
+                .addScalar("modification_date", StandardBasicTypes.INSTANT)
+                .addScalar("deleted_at", StandardBasicTypes.INSTANT)
+                .getResultList();
+
+        return rows.stream()
+                .map(r -> new VeranstaltungsRepository.ChangeRow((Long) r[0], (String) r[1], (Instant) r[2], (Instant) r[3]))
+                .toList();
+    }
+}
@@ -1,18 +1,61 @@
 package com.lennadi.eventbubble30.features.db.repository.tickets;
 
+import com.lennadi.eventbubble30.features.db.ExternalIds;
 import com.lennadi.eventbubble30.features.db.entities.tickets.Ticket;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.Optional;
 
 public interface TicketRepository extends JpaRepository<Ticket, Long>, JpaSpecificationExecutor<Ticket> {
 
-    Optional<Ticket> findByExternalIdIgnoreCase(String externalId);
+    Optional<Ticket> findByExternalId(String externalId);
+
+    /// external_id ist immer klein gespeichert: Eingabe normalisieren statt lower() in SQL, damit der Unique-Index greift
+    default Optional<Ticket> findByExternalIdIgnoreCase(String externalId) {
+        return findByExternalId(ExternalIds.normalize(externalId));
+    }
+
+    /// Ticket und die eingebetteten Benutzer-DTOs, für Last-Modified ohne das Ticket zu laden
+    interface VersionRow {
+        Instant getModificationDate();
+        Instant getCreatedByModificationDate();
+        Instant getAssignedToModificationDate();
+
+        default Instant lastModified() {
+            Instant ret = getModificationDate();
+            for (Instant i : new Instant[]{getCreatedByModificationDate(), getAssignedToModificationDate()}) {
+                if (i != null && i.isAfter(ret)) ret = i;
+            }
+            return ret;
+        }
+    }
+
+    @Query("""
+        select t.modificationDate as modificationDate,
+               cb.modificationDate as createdByModificationDate, a.modificationDate as assignedToModificationDate
+        from Ticket t left join t.createdBy cb left join t.assignedTo a
+        where t.externalId = :extId
+    """)
+    Optional<VersionRow> findVersionByNormalizedId(@Param("extId") String extId);
+
+    default Optional<VersionRow> findVersion(String extId) {
+        return findVersionByNormalizedId(ExternalIds.normalize(extId));
+    }
+
+    /// nur die Id des Erstellers, für Authz-Prüfungen ohne das Ticket zu laden
+    @Query("select t.createdBy.id from Ticket t where t.externalId = :extId")
+    Optional<Long> findAuthorIdByNormalizedId(@Param("extId") String extId);
+
+    default Optional<Long> findAuthorId(String extId) {
+        return findAuthorIdByNormalizedId(ExternalIds.normalize(extId));
+    }
 
     public enum OrderBy {
         creationDate,
@@ -0,0 +1,251 @@
+package com.lennadi.eventbubble30.features.search;
+
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Server-seitiges Clustering für die Karte.
+ * <p>
+ * Pro Zoomstufe z ist die Welt in Kacheln von {@code 360 / 2^z} Grad aufgeteilt, jede Kachel in
+ * {@code search.clusters.grid} x {@code search.clusters.grid} Zellen. Alle Events einer Zelle (aus dem {@link EventGeoIndex})
+ * werden zu einem Cluster (Schwerpunkt, Anzahl, ein paar Beispiel-Ids). Die Antwort ist damit durch
+ * Kachelanzahl x Zellen begrenzt, egal wie viele Events in der bbox liegen.
+ * <p>
+ * Kacheln werden pro (z, x, y, from, to, q) gecacht und bei Schreibzugriffen nur verworfen, wenn das Event
+ * vorher oder nachher in der Kachel liegt.
+ */
+@Component
+public class EventClusters {
+
+    public static final int MAX_ZOOM = 20;
+    private static final int SAMPLES = 3;
+
+    private final EventGeoIndex geoIndex;
+    private final EventTextIndex textIndex;
+    private final VeranstaltungsRepository veranstaltungRepo;
+
+    private final int grid;
+    private final int maxTiles;
+    private final int maxTextCandidates;
+    private final int maxEntries;
+    private final Duration ttl;
+
+    private final Counter hits, misses;
+
+    private final LinkedHashMap<TileKey, CachedTile> tiles;
+    private long generation = 0;
+
+    /**
+     * @param sampleIds externe Ids von bis zu drei Events im Cluster
+     */
+    public record Cluster(double lat, double lon, int count, List<String> sampleIds) {}
+
+    /**
+     * @param zoom tatsächlich benutzte Zoomstufe (kann kleiner sein als angefragt, wenn die bbox zu viele Kacheln hätte)
+     */
+    public record Result(int zoom, long total, List<Cluster> clusters) {}
+
+    private record TileKey(int zoom, int x, int y, Instant from, Instant to, String q) {}
+
+    private record CachedTile(List<Cluster> clusters, long total, Instant expires) {}
+
+    public EventClusters(
+            EventGeoIndex geoIndex,
+            EventTextIndex textIndex,
+            VeranstaltungsRepository veranstaltungRepo,
+            MeterRegistry registry,
+            @Value("${search.clusters.grid:8}") int grid,
+            @Value("${search.clusters.max-tiles:16}") int maxTiles,
+            @Value("${search.text.max-candidates:1000}") int maxTextCandidates,
+            @Value("${search.clusters.cache.max-entries:5000}") int maxEntries,
+            @Value("${search.clusters.cache.ttl:5m}") Duration ttl
+    ) {
+        this.geoIndex = geoIndex;
+        this.textIndex = textIndex;
+        this.veranstaltungRepo = veranstaltungRepo;
+        this.grid = grid;
+        this.maxTiles = maxTiles;
+        this.maxTextCandidates = maxTextCandidates;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+
+        this.hits = registry.counter("search.clusters.tiles", "result", "hit");
+        this.misses = registry.counter("search.clusters.tiles", "result", "miss");
+
+        this.tiles = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TileKey, CachedTile> eldest) {
+                return size() > EventClusters.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param q Freitext wie bei der Suche, über den {@link EventTextIndex}. Bei sehr vielen Treffern werden nur die
+     *          besten {@code search.text.max-candidates} geclustert, nur Stoppwörter = kein Textfilter.
+     */
+    public Result clusters(double minLat, double minLon, double maxLat, double maxLon, int zoom,
+                           Instant from, Instant to, String q) {
+        zoom = Math.max(0, Math.min(MAX_ZOOM, zoom));
+        while (zoom > 0 && tileCount(minLat, minLon, maxLat, maxLon, zoom) > maxTiles) zoom--;
+
+        String nq = q == null || q.isBlank() ? null : q.trim().replaceAll("\\s+", " ").toLowerCase(Locale.GERMAN);
+        double tileDeg = tileDeg(zoom);
+
+        List<TileKey> keys = new ArrayList<>();
+        for (int y = tileIndex(minLat + 90, tileDeg); y <= tileIndex(maxLat + 90, tileDeg); y++) {
+            for (int x = tileIndex(minLon + 180, tileDeg); x <= tileIndex(maxLon + 180, tileDeg); x++) {
+                keys.add(new TileKey(zoom, x, y, from, to, nq));
+            }
+        }
+
+        Map<TileKey, CachedTile> found = new HashMap<>();
+        List<TileKey> missing = new ArrayList<>();
+        long gen;
+        synchronized (this) {
+            gen = generation;
+            Instant now = Instant.now();
+            for (TileKey k : keys) {
+                CachedTile t = tiles.get(k);
+                if (t != null && t.expires().isAfter(now)) {
+                    found.put(k, t);
+                    hits.increment();
+                } else {
+                    missing.add(k);
+                    misses.increment();
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Set<Long> textIds = textFilter(nq);
+            found.putAll(compute(missing, textIds));
+
+            synchronized (this) {
+                if (gen == generation) {
+                    for (TileKey k : missing) tiles.put(k, found.get(k));
+                }
+            }
+        }
+
+        List<Cluster> clusters = new ArrayList<>();
+        long total = 0;
+        for (TileKey k : keys) {
+            CachedTile t = found.get(k);
+            clusters.addAll(t.clusters());
+            total += t.total();
+        }
+        return new Result(zoom, total, clusters);
+    }
+
+    /// Kacheln verwerfen, in denen das Event vor oder nach dem Schreiben liegt
+    public synchronized void invalidate(EventSearchCache.Footprint before, EventSearchCache.Footprint after) {
+        generation++;
+        tiles.keySet().removeIf(k -> contains(k, before) || contains(k, after));
+    }
+
+    /// z.B. nach einem Bulk-Import, statt jedes Event einzeln zu prüfen
+    public synchronized void clear() {
+        generation++;
+        tiles.clear();
+    }
+
+    /// //////////////////////////////////////////////////////////////////intern
+
+    private Set<Long> textFilter(String q) {
+        if (q == null) return null;
+        EventTextIndex.Hits h = textIndex.search(q, maxTextCandidates);
+        return h == null ? null : h.scores().keySet();
+    }
+
+    private static final class Cell {
+        double sumLat, sumLon;
+        int count;
+        final long[] samples = new long[SAMPLES];
+    }
+
+    private Map<TileKey, CachedTile> compute(List<TileKey> keys, Set<Long> textIds) {
+        Map<TileKey, Map<Integer, Cell>> cellsPerTile = new HashMap<>();
+
+        for (TileKey k : keys) {
+            double tileDeg = tileDeg(k.zoom());
+            double cellDeg = tileDeg / grid;
+            double tMinLat = k.y() * tileDeg - 90, tMinLon = k.x() * tileDeg - 180;
+
+            Map<Integer, Cell> cells = new HashMap<>();
+            geoIndex.forEachInBox(tMinLat, tMinLon, tMinLat + tileDeg, tMinLon + tileDeg, (id, lat, lon, termin) -> {
+                if (textIds != null && !textIds.contains(id)) return;
+                if (k.from() != null && (termin == null || termin.isBefore(k.from()))) return;
+                if (k.to() != null && (termin == null || termin.isAfter(k.to()))) return;
+
+                int r = Math.min(grid - 1, (int) ((lat - tMinLat) / cellDeg));
+                int c = Math.min(grid - 1, (int) ((lon - tMinLon) / cellDeg));
+                Cell cell = cells.computeIfAbsent(r * grid + c, i -> new Cell());
+                if (cell.count < SAMPLES) cell.samples[cell.count] = id;
+                cell.count++;
+                cell.sumLat += lat;
+                cell.sumLon += lon;
+            });
+            cellsPerTile.put(k, cells);
+        }
+
+        // externe Ids aller Beispiele auf einmal
+        Set<Long> sampleIds = new HashSet<>();
+        for (Map<Integer, Cell> cells : cellsPerTile.values()) {
+            for (Cell c : cells.values()) {
+                for (int i = 0; i < Math.min(SAMPLES, c.count); i++) sampleIds.add(c.samples[i]);
+            }
+        }
+        Map<Long, String> externalIds = new HashMap<>();
+        if (!sampleIds.isEmpty()) {
+            for (VeranstaltungsRepository.IdRow row : veranstaltungRepo.findExternalIds(sampleIds)) {
+                externalIds.put(row.getId(), row.getExternalId());
+            }
+        }
+
+        Instant expires = Instant.now().plus(ttl);
+        Map<TileKey, CachedTile> ret = new HashMap<>();
+        cellsPerTile.forEach((k, cells) -> {
+            List<Cluster> clusters = new ArrayList<>(cells.size());
+            long total = 0;
+            for (Cell c : cells.values()) {
+                List<String> samples = new ArrayList<>(SAMPLES);
+                for (int i = 0; i < Math.min(SAMPLES, c.count); i++) {
+                    String ext = externalIds.get(c.samples[i]);
+                    if (ext != null) samples.add(ext);
+                }
+                clusters.add(new Cluster(c.sumLat / c.count, c.sumLon / c.count, c.count, samples));
+                total += c.count;
+            }
+            ret.put(k, new CachedTile(List.copyOf(clusters), total, expires));
+        });
+        return ret;
+    }
+
+    private static boolean contains(TileKey k, EventSearchCache.Footprint f) {
+        if (f == null || f.lat() == null || f.lon() == null) return false;
+        double tileDeg = tileDeg(k.zoom());
+        return tileIndex(f.lat() + 90, tileDeg) == k.y() && tileIndex(f.lon() + 180, tileDeg) == k.x();
+    }
+
+    private static long tileCount(double minLat, double minLon, double maxLat, double maxLon, int zoom) {
+        double tileDeg = tileDeg(zoom);
+        return (long) (tileIndex(maxLat + 90, tileDeg) - tileIndex(minLat + 90, tileDeg) + 1)
+                * (tileIndex(maxLon + 180, tileDeg) - tileIndex(minLon + 180, tileDeg) + 1);
+    }
+
+    private static double tileDeg(int zoom) {
+        return 360.0 / (1L << zoom);
+    }
+
+    private static int tileIndex(double shifted, double tileDeg) {
+        return (int) Math.floor(shifted / tileDeg);
+    }
+}
@@ -0,0 +1,54 @@
+package com.lennadi.eventbubble30.features.search;
+
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position für Keyset-Pagination: letztes (Sortierfeld, id)-Tupel einer Seite.
+ * Für den Client ein undurchsichtiger base64url-String. {@code value == null}: Events ohne Termin, die kommen zuletzt.
+ */
+public record EventCursor(
+        VeranstaltungsRepository.OrderBy orderBy,
+        VeranstaltungsRepository.OrderDir orderDir,
+        Instant value,
+        Long id
+) {
+
+    public static EventCursor after(VeranstaltungsRepository.CardRow last, VeranstaltungsRepository.OrderBy orderBy, VeranstaltungsRepository.OrderDir orderDir) {
+        Instant value = switch (orderBy) {
+            case creationDate -> last.creationDate();
+            case modificationDate -> last.modificationDate();
+            case termin -> last.termin();
+            default -> throw new IllegalArgumentException("orderBy " + orderBy + " is not supported with cursors");
+        };
+        return new EventCursor(orderBy, orderDir, value, last.id());
+    }
+
+    public String encode() {
+        String raw = orderBy.name() + "|" + orderDir.name() + "|" + value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException wenn der Token kaputt ist
+     */
+    public static EventCursor decode(String token) {
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] p = raw.split("\\|");
+        if (p.length != 4) throw new IllegalArgumentException("malformed cursor");
+
+        try {
+            return new EventCursor(
+                    VeranstaltungsRepository.OrderBy.valueOf(p[0]),
+                    VeranstaltungsRepository.OrderDir.valueOf(p[1]),
+                    "null".equals(p[2]) ? null : Instant.parse(p[2]),
+                    Long.parseLong(p[3])
+            );
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("malformed cursor", e);
+        }
+    }
+}
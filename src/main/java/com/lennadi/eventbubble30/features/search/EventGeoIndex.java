@@ -0,0 +1,198 @@
+package com.lennadi.eventbubble30.features.search;
+
+import com.lennadi.eventbubble30.features.db.Location;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory Raster-Index über die Koordinaten aller Veranstaltungen.
+ * <p>
+ * Die Erde wird in gleich große lat/lon-Zellen aufgeteilt, jede Zelle kennt die (internen) Ids der Events darin.
+ * bbox- und Umkreissuchen schauen nur die betroffenen Zellen an, der Umkreis wird danach exakt per Haversine
+ * geschnitten. Wird beim Start aus der DB aufgebaut und von {@code VeranstaltungService} bei create/patch/delete
+ * aktuell gehalten.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventGeoIndex {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final VeranstaltungsRepository veranstaltungRepo;
+
+    @Value("${search.geo.cell-deg:0.05}")
+    private double cellDeg;
+
+    /// eventId -> {lat, lon, termin (epoch ms, NaN wenn keiner)}
+    private final Map<Long, double[]> points = new ConcurrentHashMap<>();
+    /// cellKey -> eventIds
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        points.clear();
+        cells.clear();
+
+        for (VeranstaltungsRepository.GeoRow row : veranstaltungRepo.findAllGeoRows()) {
+            put(row.getId(), row.getLatitude(), row.getLongitude(), row.getTermin());
+        }
+        log.info("Geo index built: {} events in {} cells", points.size(), cells.size());
+    }
+
+    /// //////////////////////////////////////////////////////////////////Sync
+
+    public void update(Veranstaltung v) {
+        if (v == null || v.getId() == null) return;
+
+        Location loc = v.getLocation();
+        if (loc == null || loc.getLatitude() == null || loc.getLongitude() == null) {
+            remove(v.getId());
+            return;
+        }
+        put(v.getId(), loc.getLatitude(), loc.getLongitude(), v.getTermin());
+    }
+
+    public synchronized void remove(Long id) {
+        double[] old = points.remove(id);
+        if (old == null) return;
+
+        long key = cellKey(old[0], old[1]);
+        Set<Long> cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(id);
+            if (cell.isEmpty()) cells.remove(key);
+        }
+    }
+
+    private synchronized void put(Long id, double lat, double lon, Instant termin) {
+        remove(id);
+        points.put(id, new double[]{lat, lon, termin != null ? termin.toEpochMilli() : Double.NaN});
+        cells.computeIfAbsent(cellKey(lat, lon), k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    /// //////////////////////////////////////////////////////////////////Queries
+
+    /**
+     * @return Ids aller Events in der bbox, oder {@code null} wenn es mehr als {@code limit} sind
+     */
+    public Set<Long> withinBox(double minLat, double minLon, double maxLat, double maxLon, int limit) {
+        Set<Long> ret = new HashSet<>();
+
+        for (Long id : candidates(minLat, minLon, maxLat, maxLon)) {
+            double[] p = points.get(id);
+            if (p == null) continue;
+
+            if (p[0] >= minLat && p[0] <= maxLat && p[1] >= minLon && p[1] <= maxLon) {
+                ret.add(id);
+                if (ret.size() > limit) return null;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Echter Umkreis (Haversine) statt Quadrat.
+     *
+     * @return Ids aller Events im Umkreis, oder {@code null} wenn es mehr als {@code limit} sind
+     */
+    public Set<Long> withinRadius(double lat, double lon, double radiusKm, int limit) {
+        double latDelta = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double lonDelta = cosLat < 1e-6 ? 180 : Math.min(180, latDelta / cosLat);
+
+        Set<Long> ret = new HashSet<>();
+
+        for (Long id : candidates(lat - latDelta, lon - lonDelta, lat + latDelta, lon + lonDelta)) {
+            double[] p = points.get(id);
+            if (p == null) continue;
+
+            if (haversineKm(lat, lon, p[0], p[1]) <= radiusKm) {
+                ret.add(id);
+                if (ret.size() > limit) return null;
+            }
+        }
+        return ret;
+    }
+
+    public interface PointVisitor {
+        void visit(long id, double lat, double lon, Instant termin);
+    }
+
+    /**
+     * Alle Events in [minLat, maxLat) x [minLon, maxLon) (halb offen, damit aneinander liegende Kacheln
+     * kein Event doppelt zählen). Kein Limit, der Aufrufer aggregiert.
+     */
+    public void forEachInBox(double minLat, double minLon, double maxLat, double maxLon, PointVisitor visitor) {
+        for (Long id : candidates(minLat, minLon, maxLat, maxLon)) {
+            double[] p = points.get(id);
+            if (p == null) continue;
+
+            if (p[0] >= minLat && p[0] < maxLat && p[1] >= minLon && p[1] < maxLon) {
+                visitor.visit(id, p[0], p[1], Double.isNaN(p[2]) ? null : Instant.ofEpochMilli((long) p[2]));
+            }
+        }
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    /// Kandidaten aus den Zellen (grob, muss noch exakt gefiltert werden)
+    private Iterable<Long> candidates(double minLat, double minLon, double maxLat, double maxLon) {
+        int minRow = row(Math.max(-90, minLat)), maxRow = row(Math.min(90, maxLat));
+        int minCol = col(Math.max(-180, minLon)), maxCol = col(Math.min(180, maxLon));
+
+        long cellCount = (long) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+        if (cellCount > cells.size()) {
+            // riesige Box: alle belegten Zellen durchgehen ist billiger als alle möglichen
+            return points.keySet();
+        }
+
+        Set<Long> ret = new HashSet<>();
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                Set<Long> cell = cells.get(key(r, c));
+                if (cell != null) ret.addAll(cell);
+            }
+        }
+        return ret;
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor((lat + 90) / cellDeg);
+    }
+
+    private int col(double lon) {
+        return (int) Math.floor((lon + 180) / cellDeg);
+    }
+
+    private long cellKey(double lat, double lon) {
+        return key(row(lat), col(lon));
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
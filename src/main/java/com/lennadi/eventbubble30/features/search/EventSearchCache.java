@@ -0,0 +1,200 @@
+package com.lennadi.eventbubble30.features.search;
+
+import com.lennadi.eventbubble30.features.controller.VeranstaltungController;
+import com.lennadi.eventbubble30.features.db.Location;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cache für Ergebnisseiten von {@code VeranstaltungService.search}: normalisierte Suche + Seite -> Event-Ids.
+ * <p>
+ * LRU mit fester Größe und TTL. Schreibzugriffe auf Events ({@link #invalidate}) werfen nur die Einträge raus,
+ * deren Filter (Stadt, bbox/Umkreis, Zeitraum, Besitzer) das Event vorher oder nachher treffen könnte. Suchen ohne
+ * solche Filter (nur q / Sortierung) fliegen immer raus.
+ * <p>
+ * Metriken: {@code search.cache.requests{result=hit|miss}}, {@code search.cache.evictions{cause=size|ttl|write}}.
+ */
+@Component
+public class EventSearchCache {
+
+    private final int maxEntries;
+    private final Duration ttl;
+
+    private final Counter hits, misses, evictedSize, evictedTtl, evictedWrite;
+
+    private final LinkedHashMap<Key, Entry> entries;
+
+    /// wird bei jedem Schreibzugriff erhöht, damit eine parallel laufende Suche kein veraltetes Ergebnis einträgt
+    private long generation = 0;
+
+    public record Key(VeranstaltungController.EventSearch search, int page, int size) {}
+
+    /**
+     * @param ids      Ids der Seite in Ergebnisreihenfolge
+     * @param pageable wie beim Original-Ergebnis (für Page-Metadaten)
+     */
+    public record Entry(List<Long> ids, Pageable pageable, long total, Instant expires) {}
+
+    /// was vom Event für die Filter relevant ist, vor bzw. nach dem Schreiben
+    public record Footprint(String cityKey, Double lat, Double lon, Instant termin, String ownerId) {
+        public static Footprint of(Veranstaltung v) {
+            if (v == null) return null;
+            Location l = v.getLocation();
+            return new Footprint(
+                    l != null ? l.getCityKey() : null,
+                    l != null ? l.getLatitude() : null,
+                    l != null ? l.getLongitude() : null,
+                    v.getTermin(),
+                    v.getBesitzer() != null ? v.getBesitzer().getExternalId() : null
+            );
+        }
+    }
+
+    private final Gazetteer gazetteer;
+
+    public EventSearchCache(
+            MeterRegistry registry,
+            Gazetteer gazetteer,
+            @Value("${search.cache.max-entries:2000}") int maxEntries,
+            @Value("${search.cache.ttl:60s}") Duration ttl
+    ) {
+        this.gazetteer = gazetteer;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+
+        this.hits = registry.counter("search.cache.requests", "result", "hit");
+        this.misses = registry.counter("search.cache.requests", "result", "miss");
+        this.evictedSize = registry.counter("search.cache.evictions", "cause", "size");
+        this.evictedTtl = registry.counter("search.cache.evictions", "cause", "ttl");
+        this.evictedWrite = registry.counter("search.cache.evictions", "cause", "write");
+
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= EventSearchCache.this.maxEntries) return false;
+                evictedSize.increment();
+                return true;
+            }
+        };
+        registry.gaugeMapSize("search.cache.size", List.of(), entries);
+    }
+
+    /**
+     * gleiche Suche -> gleicher Key (q getrimmt und klein, Whitespace zusammengefasst, city als {@link Gazetteer#cityKey}).
+     * Gesucht werden muss dann auch mit {@code key.search()}, sonst passen Key und Ergebnis nicht zusammen.
+     */
+    public Key key(VeranstaltungController.EventSearch s, int page, int size) {
+        VeranstaltungController.EventSearch n = new VeranstaltungController.EventSearch(
+                normalize(s.q()), gazetteer.cityKey(s.city()),
+                s.minLat(), s.minLon(), s.maxLat(), s.maxLon(),
+                s.nearLat(), s.nearLon(), s.radiusKm(),
+                s.from(), s.to(),
+                s.ownerId(),
+                s.orderBy(), s.orderDir()
+        );
+        return new Key(n, page, size);
+    }
+
+    private static String normalize(String s) {
+        if (s == null) return null;
+        s = s.trim().replaceAll("\\s+", " ").toLowerCase(Locale.GERMAN);
+        return s.isEmpty() ? null : s;
+    }
+
+    public synchronized Entry get(Key key) {
+        Entry e = entries.get(key);
+        if (e != null && e.expires().isBefore(Instant.now())) {
+            entries.remove(key);
+            evictedTtl.increment();
+            e = null;
+        }
+
+        (e != null ? hits : misses).increment();
+        return e;
+    }
+
+    /// vor der Suche holen und bei {@link #put} wieder mitgeben
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(Key key, long generation, List<Long> ids, Pageable pageable, long total) {
+        if (generation != this.generation) return; // zwischendurch geschrieben, Ergebnis evtl. veraltet
+        entries.put(key, new Entry(List.copyOf(ids), pageable, total, Instant.now().plus(ttl)));
+    }
+
+    /**
+     * Nach create ({@code before == null}), patch oder delete ({@code after == null}) eines Events.
+     */
+    public synchronized void invalidate(Footprint before, Footprint after) {
+        generation++;
+
+        Instant now = Instant.now();
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getValue().expires().isBefore(now)) {
+                it.remove();
+                evictedTtl.increment();
+            } else if (affects(e.getKey().search(), before) || affects(e.getKey().search(), after)) {
+                it.remove();
+                evictedWrite.increment();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        evictedWrite.increment(entries.size());
+        entries.clear();
+    }
+
+    /// false nur wenn sicher ist, dass das Event durch einen der Filter von s fällt
+    private static boolean affects(VeranstaltungController.EventSearch s, Footprint f) {
+        if (f == null) return false;
+
+        if (s.city() != null && !s.city().equals(f.cityKey())) {
+            return false;
+        }
+
+        if (s.ownerId() != null && !s.ownerId().equals(f.ownerId())) {
+            return false;
+        }
+
+        if (s.from() != null || s.to() != null) {
+            if (f.termin() == null) return false;
+            if (s.from() != null && f.termin().isBefore(s.from())) return false;
+            if (s.to() != null && f.termin().isAfter(s.to())) return false;
+        }
+
+        boolean spatial = s.minLat() != null || (s.nearLat() != null && s.nearLon() != null && s.radiusKm() != null);
+        if (spatial) {
+            if (f.lat() == null || f.lon() == null) return false;
+
+            if (s.minLat() != null && (f.lat() < s.minLat() || f.lat() > s.maxLat()
+                    || f.lon() < s.minLon() || f.lon() > s.maxLon())) {
+                return false;
+            }
+
+            // großzügig, weil der DB-Fallback ein Rechteck statt Kreis benutzt
+            if (s.nearLat() != null && s.nearLon() != null && s.radiusKm() != null
+                    && EventGeoIndex.haversineKm(s.nearLat(), s.nearLon(), f.lat(), f.lon()) > s.radiusKm() * Math.sqrt(2)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
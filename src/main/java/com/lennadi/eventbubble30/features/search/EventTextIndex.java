@@ -0,0 +1,203 @@
+package com.lennadi.eventbubble30.features.search;
+
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Invertierter Index über Titel und Beschreibung aller Veranstaltungen, Ranking per BM25.
+ * <p>
+ * Titel-Terme zählen doppelt. Mehrere Suchwörter werden UND-verknüpft (wie vorher der LIKE über den ganzen String),
+ * Kosten wachsen also mit der Trefferzahl und nicht mit der Tabellengröße.
+ * <p>
+ * Das letzte Suchwort ist meistens noch nicht fertig getippt ("festiv"), es matcht deshalb als Präfix auf bis zu
+ * {@code MAX_PREFIX_TERMS} Terme aus dem sortierten Wörterbuch. Alle anderen Wörter müssen als ganzer Term passen.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventTextIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 2;
+    private static final int REBUILD_BATCH = 1000;
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_PREFIX_TERMS = 50;
+
+    private final VeranstaltungsRepository veranstaltungRepo;
+
+    /// term -> (eventId -> tf), sortiert für die Präfixsuche
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    /// eventId -> Terme (zum Entfernen beim Update)
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    private long totalLength = 0;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param scores    eventId -> BM25, absteigend sortiert
+     * @param truncated true wenn es mehr Treffer gab als zurückgegeben wurden
+     */
+    public record Hits(LinkedHashMap<Long, Double> scores, boolean truncated) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long after = 0;
+        List<VeranstaltungsRepository.TextRow> batch;
+        do {
+            batch = veranstaltungRepo.findTextRowsAfter(after, PageRequest.ofSize(REBUILD_BATCH));
+            for (VeranstaltungsRepository.TextRow row : batch) {
+                put(row.getId(), row.getTitle(), row.getDescription());
+                after = row.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH);
+
+        log.info("Text index built: {} events, {} terms", documents.size(), postings.size());
+    }
+
+    /// //////////////////////////////////////////////////////////////////Sync
+
+    public void update(Veranstaltung v) {
+        if (v == null || v.getId() == null) return;
+        put(v.getId(), v.getTitle(), v.getDescription());
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Long id, String title, String description) {
+        Map<String, Integer> tf = new HashMap<>();
+        for (String t : GermanAnalyzer.terms(title)) tf.merge(t, TITLE_WEIGHT, Integer::sum);
+        for (String t : GermanAnalyzer.terms(description)) tf.merge(t, 1, Integer::sum);
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            documents.put(id, tf);
+            tf.forEach((term, n) -> {
+                postings.computeIfAbsent(term, k -> new HashMap<>()).put(id, n);
+                totalLength += n;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeInternal(Long id) {
+        Map<String, Integer> old = documents.remove(id);
+        if (old == null) return;
+
+        old.forEach((term, n) -> {
+            Map<Long, Integer> p = postings.get(term);
+            if (p != null) {
+                p.remove(id);
+                if (p.isEmpty()) postings.remove(term);
+            }
+            totalLength -= n;
+        });
+    }
+
+    /// //////////////////////////////////////////////////////////////////Query
+
+    /**
+     * @return Treffer nach BM25 (höchstens {@code limit}), oder {@code null} wenn die Anfrage keine
+     * verwertbaren Terme enthält (nur Stoppwörter/Satzzeichen) und man auf LIKE zurückfallen sollte
+     */
+    public Hits search(String q, int limit) {
+        Set<String> terms = new LinkedHashSet<>(GermanAnalyzer.terms(q));
+        if (terms.isEmpty()) return null;
+
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Integer>> lists = new ArrayList<>(terms.size());
+            int i = 0;
+            for (String t : terms) {
+                Map<Long, Integer> p = ++i == terms.size() ? withPrefix(t) : postings.get(t);
+                if (p == null || p.isEmpty()) return new Hits(new LinkedHashMap<>(), false);
+                lists.add(p);
+            }
+            // kürzeste Liste zuerst, damit die Schnittmenge klein startet
+            lists.sort(Comparator.comparingInt(Map::size));
+
+            int n = documents.size();
+            double avgLen = n == 0 ? 1 : (double) totalLength / n;
+
+            Map<Long, Double> scores = new HashMap<>();
+            outer:
+            for (Long id : lists.get(0).keySet()) {
+                double score = 0;
+                double len = documentLength(id);
+                for (Map<Long, Integer> p : lists) {
+                    Integer tf = p.get(id);
+                    if (tf == null) continue outer;
+
+                    double idf = Math.log(1 + (n - p.size() + 0.5) / (p.size() + 0.5));
+                    score += idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * len / avgLen));
+                }
+                scores.put(id, score);
+            }
+
+            LinkedHashMap<Long, Double> ranked = new LinkedHashMap<>();
+            scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                    .limit(limit)
+                    .forEachOrdered(e -> ranked.put(e.getKey(), e.getValue()));
+
+            return new Hits(ranked, scores.size() > limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /// Postings aller Terme, die mit prefix anfangen (tf pro Event: Maximum), unter Lock aufrufen
+    private Map<Long, Integer> withPrefix(String prefix) {
+        if (prefix.length() < MIN_PREFIX_LENGTH) return postings.get(prefix);
+
+        Map<Long, Integer> merged = null;
+        int n = 0;
+        for (Map.Entry<String, Map<Long, Integer>> e : postings.tailMap(prefix, true).entrySet()) {
+            if (!e.getKey().startsWith(prefix) || n++ >= MAX_PREFIX_TERMS) break;
+            if (merged == null) {
+                merged = e.getValue(); // nur ein Term: keine Kopie
+            } else {
+                if (n == 2) merged = new HashMap<>(merged);
+                Map<Long, Integer> target = merged;
+                e.getValue().forEach((id, tf) -> target.merge(id, tf, Math::max));
+            }
+        }
+        return merged;
+    }
+
+    private int documentLength(Long id) {
+        Map<String, Integer> doc = documents.get(id);
+        if (doc == null) return 0;
+
+        int len = 0;
+        for (int n : doc.values()) len += n;
+        return len;
+    }
+}
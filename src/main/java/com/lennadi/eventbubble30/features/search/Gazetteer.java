@@ -0,0 +1,183 @@
+package com.lennadi.eventbubble30.features.search;
+
+import com.lennadi.eventbubble30.features.db.Location;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Offline-Ortsverzeichnis: Ortsnamen, Aliase und PLZ -> kanonischer Ort mit Koordinaten, ohne externe Aufrufe.
+ * <p>
+ * Datenformat wie der GeoNames-Postleitzahlen-Dump (tab-getrennt: Land, PLZ, Ort, ..., lat, lon, ...), mitgeliefert ist
+ * nur ein Auszug mit den größeren Städten. Für den vollen Datensatz {@code gazetteer.places} auf die DE.txt von
+ * GeoNames zeigen lassen.
+ * <p>
+ * Der Städteschlüssel ({@link #cityKey}) ist kleingeschrieben, Umlaute ausgeschrieben, alles andere als '-':
+ * "Köln", "koeln", " KÖLN " und (per Alias) "Cologne" werden alle zu {@code koeln}.
+ */
+@Slf4j
+@Component
+public class Gazetteer {
+
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    public record Place(String key, String name, double lat, double lon) {}
+
+    private record Postal(String placeKey, double lat, double lon) {}
+
+    private final Resource places;
+    private final Resource aliases;
+
+    private final Map<String, Place> byKey = new HashMap<>();
+    private final Map<String, String> aliasToKey = new HashMap<>();
+    private final Map<String, Postal> byPostalCode = new HashMap<>();
+
+    public Gazetteer(
+            @Value("${gazetteer.places:classpath:gazetteer/DE.txt}") Resource places,
+            @Value("${gazetteer.aliases:classpath:gazetteer/aliases.tsv}") Resource aliases
+    ) {
+        this.places = places;
+        this.aliases = aliases;
+    }
+
+    @PostConstruct
+    public void load() {
+        // Ort = Mittelwert seiner PLZ-Koordinaten
+        Map<String, double[]> sums = new HashMap<>();
+        Map<String, String> names = new HashMap<>();
+
+        read(places, cols -> {
+            if (cols.length < 11) return;
+            String postal = cols[1].trim();
+            String name = cols[2].trim();
+            double lat = Double.parseDouble(cols[9]);
+            double lon = Double.parseDouble(cols[10]);
+
+            String key = fold(name);
+            if (key == null) return;
+            names.putIfAbsent(key, name);
+            double[] s = sums.computeIfAbsent(key, k -> new double[3]);
+            s[0] += lat;
+            s[1] += lon;
+            s[2]++;
+
+            byPostalCode.putIfAbsent(postal, new Postal(key, lat, lon));
+        });
+
+        sums.forEach((key, s) -> byKey.put(key, new Place(key, names.get(key), s[0] / s[2], s[1] / s[2])));
+
+        read(aliases, cols -> {
+            if (cols.length < 2) return;
+            String target = fold(cols[1]);
+            if (byKey.containsKey(target)) aliasToKey.put(fold(cols[0]), target);
+        });
+
+        log.info("Gazetteer loaded: {} places, {} postal codes, {} aliases", byKey.size(), byPostalCode.size(), aliasToKey.size());
+    }
+
+    private static void read(Resource r, Consumer<String[]> line) {
+        if (r == null || !r.exists()) {
+            log.warn("Gazetteer data {} not found", r);
+            return;
+        }
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(r.getInputStream(), StandardCharsets.UTF_8))) {
+            String l;
+            while ((l = in.readLine()) != null) {
+                if (l.isBlank() || l.startsWith("#")) continue;
+                line.accept(l.split("\t", -1));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gazetteer data " + r + " unreadable", e);
+        }
+    }
+
+    /// //////////////////////////////////////////////////////////////////Lookup
+
+    /**
+     * Kanonischer Städteschlüssel für Speicherung und Filter. Unbekannte Orte bekommen ihren gefalteten Namen,
+     * damit wenigstens Schreibweise/Umlaute egal sind.
+     *
+     * @return {@code null} für leere Eingabe
+     */
+    public String cityKey(String city) {
+        String key = fold(city);
+        if (key == null) return null;
+        return aliasToKey.getOrDefault(key, key);
+    }
+
+    public Place findCity(String city) {
+        String key = cityKey(city);
+        return key == null ? null : byKey.get(key);
+    }
+
+    public Place findPostalCode(String postalCode) {
+        if (postalCode == null) return null;
+        Postal p = byPostalCode.get(postalCode.trim());
+        if (p == null) return null;
+        Place place = byKey.get(p.placeKey());
+        return new Place(p.placeKey(), place.name(), p.lat(), p.lon());
+    }
+
+    /**
+     * Vereinheitlicht eine Location vor dem Speichern: PLZ getrimmt, Stadt in kanonischer Schreibweise (bzw. aus der PLZ),
+     * {@code cityKey} gesetzt, fehlende Koordinaten aus PLZ oder Stadt. Bekannte Koordinaten werden nie überschrieben.
+     */
+    public Location canonicalize(Location loc) {
+        if (loc == null) return null;
+
+        if (loc.getPostalCode() != null) {
+            String pc = loc.getPostalCode().trim();
+            loc.setPostalCode(pc.isEmpty() ? null : pc);
+        }
+
+        Place byPostal = findPostalCode(loc.getPostalCode());
+        Place byCity = findCity(loc.getCity());
+
+        Place place = byCity != null ? byCity : byPostal;
+        if (place != null) {
+            loc.setCity(place.name());
+        } else if (loc.getCity() != null) {
+            loc.setCity(loc.getCity().trim().replaceAll("\\s+", " "));
+        }
+        loc.setCityKey(place != null ? place.key() : cityKey(loc.getCity()));
+
+        if (loc.getLatitude() == null || loc.getLongitude() == null) {
+            // PLZ ist genauer als die Stadtmitte, aber nur wenn sie zur Stadt passt
+            Place coords = byPostal != null && (byCity == null || byCity.key().equals(byPostal.key())) ? byPostal : byCity;
+            if (coords != null) {
+                loc.setLatitude(coords.lat());
+                loc.setLongitude(coords.lon());
+            }
+        }
+        return loc;
+    }
+
+    /// klein, Umlaute ausgeschrieben, Akzente weg, alles andere '-'
+    static String fold(String s) {
+        if (s == null) return null;
+        s = s.trim().toLowerCase(Locale.GERMAN)
+                .replace("ä", "ae")
+                .replace("ö", "oe")
+                .replace("ü", "ue")
+                .replace("ß", "ss");
+        s = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        s = NON_ALNUM.matcher(s).replaceAll("-");
+        s = s.replaceAll("^-+|-+$", "");
+        return s.isEmpty() ? null : s;
+    }
+}
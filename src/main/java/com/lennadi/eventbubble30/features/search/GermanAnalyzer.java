@@ -0,0 +1,98 @@
+package com.lennadi.eventbubble30.features.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Zerlegt Text in Suchterme: Kleinschreibung (deutsch), Umlaute falten, Stoppwörter raus, CISTEM-Stemming.
+ * <p>
+ * CISTEM: Weissweiler &amp; Fraser, "Developing a Stemmer for German Based on a Comparative Analysis of Publicly
+ * Available Stemmers" (2017). Hier immer die case-insensitive Variante, Suchanfragen sind eh meistens klein.
+ */
+public final class GermanAnalyzer {
+    private GermanAnalyzer() {}
+
+    private static final Pattern SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "der", "die", "das", "den", "dem", "des",
+            "ein", "eine", "einer", "eines", "einem", "einen",
+            "und", "oder", "aber", "in", "im", "an", "am", "auf", "aus", "bei", "mit", "von", "vom",
+            "zu", "zum", "zur", "für", "fur", "ist", "sind", "war", "es", "sie", "er", "wir", "ihr",
+            "the", "and", "of", "a", "to"
+    );
+
+    public static List<String> terms(String text) {
+        List<String> ret = new ArrayList<>();
+        if (text == null || text.isBlank()) return ret;
+
+        for (String token : SPLIT.split(text.toLowerCase(Locale.GERMAN))) {
+            if (token.isEmpty() || STOPWORDS.contains(token)) continue;
+            ret.add(stem(token));
+        }
+        return ret;
+    }
+
+    /// CISTEM, erwartet bereits kleingeschriebenes Wort
+    static String stem(String word) {
+        if (word.isEmpty()) return word;
+
+        word = word
+                .replace("ü", "u")
+                .replace("ö", "o")
+                .replace("ä", "a")
+                .replace("ß", "ss");
+
+        if (word.startsWith("ge") && word.length() >= 6) {
+            word = word.substring(2);
+        }
+
+        word = word
+                .replace("sch", "$")
+                .replace("ei", "%")
+                .replace("ie", "&");
+
+        // Doppelbuchstaben markieren, damit nd/t/e/s/n-Regeln sie nicht zerreißen
+        StringBuilder sb = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (i > 0 && c == word.charAt(i - 1) && sb.charAt(sb.length() - 1) != '*') {
+                sb.append('*');
+            } else {
+                sb.append(c);
+            }
+        }
+
+        while (sb.length() > 3) {
+            int len = sb.length();
+            if (len > 5) {
+                if (sb.charAt(len - 2) == 'e' && (sb.charAt(len - 1) == 'm' || sb.charAt(len - 1) == 'r')) {
+                    sb.setLength(len - 2);
+                    continue;
+                }
+                if (sb.charAt(len - 2) == 'n' && sb.charAt(len - 1) == 'd') {
+                    sb.setLength(len - 2);
+                    continue;
+                }
+            }
+            char last = sb.charAt(len - 1);
+            if (last == 't' || last == 'e' || last == 's' || last == 'n') {
+                sb.setLength(len - 1);
+                continue;
+            }
+            break;
+        }
+
+        for (int i = 1; i < sb.length(); i++) {
+            if (sb.charAt(i) == '*') sb.setCharAt(i, sb.charAt(i - 1));
+        }
+
+        return sb.toString()
+                .replace("%", "ei")
+                .replace("&", "ie")
+                .replace("$", "sch");
+    }
+}
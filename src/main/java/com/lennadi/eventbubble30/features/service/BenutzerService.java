@@ -3,27 +3,36 @@ package com.lennadi.eventbubble30.features.service;
 import com.lennadi.eventbubble30.config.ServerConfig;
 import com.lennadi.eventbubble30.features.controller.BenutzerController;
 import com.lennadi.eventbubble30.features.db.EntityType;
+import com.lennadi.eventbubble30.features.db.ExternalIds;
 import com.lennadi.eventbubble30.features.db.entities.Benutzer;
 import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
 import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import com.lennadi.eventbubble30.features.db.repository.ProfilRepository;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
 import com.lennadi.eventbubble30.logging.AuditLog;
 import com.lennadi.eventbubble30.logging.AuditService;
 import com.lennadi.eventbubble30.mail.EmailService;
+import com.lennadi.eventbubble30.security.BenutzerDetails;
+import com.lennadi.eventbubble30.security.RequestMemo;
 import com.lennadi.eventbubble30.security.TokenGeneration;
+import com.lennadi.eventbubble30.security.password.PasswordHasher;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 @Service
@@ -32,9 +41,15 @@ import java.util.Set;
 public class BenutzerService {
 
     private final BenutzerRepository repository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final EmailService emailService;
     private final AuditService auditService;
+    private final ProfilRepository profilRepository;
+    private final VeranstaltungsRepository veranstaltungRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LastSeenService lastSeen;
+
+    private static final String CURRENT_USER = "currentUser:";
 
     @Value("${cleanup.BenutzerEmailVer-d:7}")
     private int verificationDeadline;
@@ -67,7 +82,7 @@ public class BenutzerService {
 
     public void resetPassword(String extId, String newPassword) {
         Benutzer b = requireUser(extId);
-        b.setPasswordHash(passwordEncoder.encode(newPassword));
+        b.setPasswordHash(passwordHasher.encode(newPassword));
     }
 
     public Benutzer createUser(String email, String username, String password) {
@@ -83,7 +98,7 @@ public class BenutzerService {
         Benutzer user = new Benutzer();
         user.setEmail(email);
         user.setUsername(username);
-        user.setPasswordHash(passwordEncoder.encode(password));
+        user.setPasswordHash(passwordHasher.encode(password));
         user.setEmailVerified(false);
 
         if (repository.count() == 0) { // todo stop doing that mby
@@ -124,21 +139,31 @@ public class BenutzerService {
         }
     }
 
+    /**
+     * Pro Request nur einmal geladen ({@link RequestMemo}), per Id aus dem JWT-Principal.
+     * Nur wenn der Principal kein {@link BenutzerDetails} ist, wird noch über den Namen gesucht.
+     */
     @PreAuthorize("@authz.isAuthenticated()")
     @Transactional(readOnly = true)
     public Benutzer getCurrentUser() {
         var context = SecurityContextHolder.getContext();
         Authentication auth = (context != null ? context.getAuthentication() : null);
 
-        System.out.println(auth);
-
         if (auth == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not logged in");
         }
 
-        String username = auth.getName();
-
-        return requireUserByUsername(username);//todo use id mby?
+        Benutzer ret;
+        if (auth.getPrincipal() instanceof BenutzerDetails details) {
+            ret = RequestMemo.get(CURRENT_USER + details.getId(), () -> repository.findById(details.getId()).orElse(null));
+            if (ret == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Benutzer mit interner id [" + details.getId() + "] nicht gefunden");
+            }
+        } else {
+            ret = requireUserByUsername(auth.getName());
+        }
+        return ret;
     }
 
     /// ////////////////////////////////ADMIN
@@ -161,12 +186,9 @@ public class BenutzerService {
 
     /// //////////////////////////////////KLeine updates
 
-    public void seen(Long id) {
-        repository.updateLastSeen(id, Instant.now());
-    }
-
+    /// gepuffert, siehe LastSeenService
     public void lastLoginDate(Long id) {
-        requireUser(id).setLastLoginDate(Instant.now());
+        lastSeen.login(id);
     }
 
     @PreAuthorize("@authz.isSelf(#extId) or @authz.hasRole('ADMIN')")
@@ -203,9 +225,40 @@ public class BenutzerService {
         return b;
     }
 
+    /// nach dem Commit eines Benutzer-Löschens, damit Indizes/Caches die Events rauswerfen
+    public record Deleted(Long userId, List<Long> eventIds) {}
+
+    /**
+     * Soft Delete: Benutzer und seine Events bekommen deleted_at und sind sofort unsichtbar, Username/E-Mail werden
+     * freigegeben. Bookmarks, Audit-Referenzen usw. räumt erst {@link PurgeService} nachts auf.
+     */
     @PreAuthorize("@authz.isSelf(#extId) or @authz.hasRole('ADMIN')")
     public void deleteUserById(String extId) {
-        repository.delete(requireUser(extId));
+        Benutzer b = requireUser(extId);
+        Instant now = Instant.now();
+
+        b.softDelete();
+        // zufällig und mit "~", das kein Signup durchlässt: niemand kann den Tombstone vorher belegen
+        String tombstone = TokenGeneration.generateTombstone();
+        b.setUsername("~" + tombstone);
+        b.setEmail("deleted." + tombstone + "@deleted.invalid");
+        b.setTokensInvalidatedAt(now);
+        profilRepository.findById(b.getId()).ifPresent(profilRepository::delete);
+
+        List<Long> eventIds = veranstaltungRepository.findIdsByOwner(b.getId());
+        veranstaltungRepository.softDeleteByOwner(b.getId(), now); // flusht vorher, leert danach den Persistence Context
+        forgetCurrentUser();
+
+        eventPublisher.publishEvent(new Deleted(b.getId(), eventIds));
+    }
+
+    /// nach einem clear() des Persistence Context ist der gemerkte aktuelle Benutzer detached, beim nächsten Zugriff neu laden
+    private void forgetCurrentUser() {
+        var context = SecurityContextHolder.getContext();
+        Authentication auth = (context != null ? context.getAuthentication() : null);
+        if (auth != null && auth.getPrincipal() instanceof BenutzerDetails details) {
+            RequestMemo.forget(CURRENT_USER + details.getId());
+        }
     }
 
     /// //////////////////////////////PW
@@ -213,7 +266,7 @@ public class BenutzerService {
     @PreAuthorize("@authz.isSelf(#extId)")
     public void changePassword(String extId, String oldPassword, String newPassword) {
         Benutzer b = requireUser(extId);
-        if(passwordEncoder.matches(oldPassword, b.getPasswordHash())) {
+        if(passwordHasher.matches(oldPassword, b.getPasswordHash())) {
             resetPassword(extId, newPassword);
         }else{
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Incorrect old password");
@@ -261,15 +314,38 @@ public class BenutzerService {
         return b;
     }
 
-    public boolean isEventBookmarked(String veranstaltungExtId) {
-        Benutzer cur = getCurrentUserOrNull();
-        if(cur == null) return false;
+    /// Id aus dem JWT-Principal, ohne DB
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Long getCurrentUserIdOrNull() {
+        var context = SecurityContextHolder.getContext();
+        Authentication auth = (context != null ? context.getAuthentication() : null);
+
+        if (auth != null && auth.getPrincipal() instanceof BenutzerDetails details) {
+            return details.getId();
+        }
+        return null;
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isEventBookmarked(Veranstaltung v) {
+        return !bookmarkedAmong(Set.of(v.getId())).isEmpty();
+    }
+
+    /**
+     * Bookmark-Flags für eine ganze Ergebnisseite in einer Query.
+     *
+     * @return die Teilmenge von {@code eventIds}, die der aktuelle Nutzer gemerkt hat (leer wenn nicht eingeloggt)
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> bookmarkedAmong(Collection<Long> eventIds) {
+        Long userId = getCurrentUserIdOrNull();
+        if (userId == null || eventIds.isEmpty()) return Set.of();
 
-        return repository.existsByIdAndBookmarkedVeranstaltungen_ExternalId(cur.getId(), veranstaltungExtId);
+        return repository.findBookmarkedEventIdsAmong(userId, eventIds);
     }
 
     public Set<Veranstaltung> getBookmarked(String benExtId) {
-        return repository.findBookmarkedEvents(benExtId);
+        return repository.findBookmarkedEvents(ExternalIds.normalize(benExtId));
     }
 
 }
@@ -0,0 +1,92 @@
+package com.lennadi.eventbubble30.features.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pflegt {@code veranstaltung.bookmark_count}: bookmark/unbookmark sammeln nur Deltas im Speicher, die alle
+ * {@code bookmarks.flush-interval} gebündelt (ein JDBC-Batch) in die Spalte geschrieben werden.
+ * <p>
+ * Angezeigt wird immer Spalte + noch offenes Delta ({@link #current}). Nachts wird einmal komplett aus der
+ * Join-Tabelle nachgezählt (ohne soft-gelöschte Benutzer), das fängt alles ab, was am Zähler vorbeiläuft.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookmarkCountService {
+
+    private final JdbcTemplate jdbc;
+
+    /// eventId -> noch nicht geschriebenes Delta (merge/remove sind pro Key atomar, es geht also nichts verloren)
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    public void increment(Long eventId) {
+        pending.merge(eventId, 1L, Long::sum);
+    }
+
+    public void decrement(Long eventId) {
+        pending.merge(eventId, -1L, Long::sum);
+    }
+
+    /// @param persisted Wert aus der DB-Spalte
+    public long current(Long eventId, long persisted) {
+        return Math.max(0, persisted + pending.getOrDefault(eventId, 0L));
+    }
+
+    /// Event gelöscht: offenes Delta wegwerfen
+    public void forget(Long eventId) {
+        pending.remove(eventId);
+    }
+
+    @Scheduled(fixedDelayString = "${bookmarks.flush-interval:5s}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) return;
+
+        List<Object[]> batch = new ArrayList<>();
+        for (Long id : List.copyOf(pending.keySet())) {
+            Long delta = pending.remove(id);
+            if (delta != null && delta != 0) batch.add(new Object[]{delta, id});
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            jdbc.batchUpdate(
+                    "update veranstaltung set bookmark_count = greatest(0, bookmark_count + ?) where id = ?",
+                    batch
+            );
+        } catch (RuntimeException e) {
+            // zurücklegen, nächster Versuch im nächsten Intervall
+            for (Object[] row : batch) pending.merge((Long) row[1], (Long) row[0], Long::sum);
+            throw e;
+        }
+        log.debug("Flushed bookmark counts for {} events", batch.size());
+    }
+
+    /// Komplett aus der Join-Tabelle nachzählen (CronJobs)
+    public synchronized void recount() {
+        flush();
+        int n = jdbc.update("""
+                update veranstaltung v
+                set bookmark_count = (
+                    select count(*) from benutzer_bookmarked_veranstaltungen bv
+                    join benutzer b on b.id = bv.benutzer_id
+                    where bv.veranstaltung_id = v.id and b.deleted_at is null
+                )
+                """);
+        log.info("Recounted bookmarks for {} events", n);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -8,6 +8,7 @@ import com.lennadi.eventbubble30.features.db.entities.Benutzer;
 import com.lennadi.eventbubble30.features.db.entities.Profil;
 import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
 import com.lennadi.eventbubble30.features.db.entities.tickets.Ticket;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
 import com.lennadi.eventbubble30.fileStorage.FileManagerService;
 import com.lennadi.eventbubble30.logging.AuditLog;
 import lombok.RequiredArgsConstructor;
@@ -19,11 +20,17 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 
 @Service
 @RequiredArgsConstructor
 public class DtoService {
     private final FileManagerService fileManagerService;
+    private final BookmarkCountService bookmarkCounts;
+    private final LastSeenService lastSeen;
 
     public IDTO get(Profil p){return get(p,DTOLevel.FULL);}
     public IDTO get(Profil p, DTOLevel lvl){
@@ -49,11 +56,15 @@ public class DtoService {
             return new Benutzer.ModDTO(
                     b.getExternalId(), b.getUsername(), b.getRoles(),
                     b.getEmail(), b.isEmailVerified(),
-                    b.getLastLoginDate(), b.getLastSeen(),
+                    lastSeen.lastLogin(b.getId(), b.getLastLoginDate()), lastSeen.lastSeen(b.getId(), b.getLastSeen()),
                     b.getPasswordChangedAt(), b.getTokensInvalidatedAt()
             );
         }
 
+        if (lvl == DTOLevel.CARD) {
+            return new Benutzer.CardDTO(b.getExternalId(), b.getUsername());
+        }
+
         return new Benutzer.DTO(b.getExternalId(), b.getUsername(), b.getRoles());
     }
 
@@ -61,11 +72,12 @@ public class DtoService {
     public IDTO get(Veranstaltung v, boolean bookmarked){return get(v, bookmarked,DTOLevel.FULL);}
     public IDTO get(Veranstaltung v, boolean bookmarked, DTOLevel lvl) {
         Benutzer bes = v.getBesitzer();
+        long bookmarks = bookmarkCounts.current(v.getId(), v.getBookmarkCount());
 
         if(lvl == DTOLevel.MOD){
             assertAdmin();
             return new Veranstaltung.ModDTO(
-                    v.getExternalId(), v.getTitle(), v.getTermin(), bes!=null?get(bes):null, v.getLocation(), bookmarked,
+                    v.getExternalId(), v.getTitle(), v.getTermin(), bes!=null?get(bes):null, v.getLocation(), bookmarked, bookmarks,
                     v.getDescription(), v.getCreationDate(),
                     v.getModificationDate()
             );
@@ -73,16 +85,38 @@ public class DtoService {
 
         if (lvl == DTOLevel.CARD) {
             return new Veranstaltung.CardDTO(
-                    v.getExternalId(), v.getTitle(), v.getTermin(), bes!=null?get(bes):null, v.getLocation(), bookmarked
+                    v.getExternalId(), v.getTitle(), v.getTermin(), bes!=null?get(bes, DTOLevel.CARD):null, v.getLocation(), bookmarked, bookmarks
             );
         }
 
         return new Veranstaltung.DTO(
-                v.getExternalId(), v.getTitle(), v.getTermin(), bes!=null?get(bes):null, v.getLocation(), bookmarked,
+                v.getExternalId(), v.getTitle(), v.getTermin(), bes!=null?get(bes):null, v.getLocation(), bookmarked, bookmarks,
                 v.getDescription(), v.getCreationDate()
         );
     }
 
+    /// ganze Ergebnisseite als Cards, bookmarked = Ids aus BenutzerService.bookmarkedAmong
+    public List<IDTO> getCards(Collection<Veranstaltung> vs, Set<Long> bookmarked) {
+        return vs.stream()
+                .map(v -> get(v, bookmarked.contains(v.getId()), DTOLevel.CARD))
+                .toList();
+    }
+
+    /// Card direkt aus der Projektion, ohne Entity (siehe VeranstaltungsRepository.findCards)
+    public IDTO get(VeranstaltungsRepository.CardRow r, boolean bookmarked) {
+        return new Veranstaltung.CardDTO(
+                r.externalId(), r.title(), r.termin(),
+                r.ownerExternalId() != null ? new Benutzer.CardDTO(r.ownerExternalId(), r.ownerUsername()) : null,
+                r.location(), bookmarked, bookmarkCounts.current(r.id(), r.bookmarkCount() != null ? r.bookmarkCount() : 0)
+        );
+    }
+
+    public List<IDTO> getCardsFromRows(Collection<VeranstaltungsRepository.CardRow> rows, Set<Long> bookmarked) {
+        return rows.stream()
+                .map(r -> get(r, bookmarked.contains(r.id())))
+                .toList();
+    }
+
     public IDTO get(AuditLog a){return get(a,DTOLevel.FULL);}//always full
     public IDTO get(AuditLog a, DTOLevel lvl) {
         Benutzer bes = a.getBenutzer();
@@ -115,6 +149,11 @@ public class DtoService {
         );
     }
 
+    /// vor einem 304 aufrufen: ein Conditional GET darf nicht an der MOD-Prüfung vorbei
+    public void checkLevel(DTOLevel lvl) {
+        if (lvl == DTOLevel.MOD) assertAdmin();
+    }
+
     private void assertAdmin(){//todo central
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
 
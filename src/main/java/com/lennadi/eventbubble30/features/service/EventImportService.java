@@ -0,0 +1,207 @@
+package com.lennadi.eventbubble30.features.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lennadi.eventbubble30.features.controller.VeranstaltungController;
+import com.lennadi.eventbubble30.features.db.EntityType;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.search.EventClusters;
+import com.lennadi.eventbubble30.features.search.EventGeoIndex;
+import com.lennadi.eventbubble30.features.search.EventSearchCache;
+import com.lennadi.eventbubble30.features.search.EventTextIndex;
+import com.lennadi.eventbubble30.features.search.Gazetteer;
+import com.lennadi.eventbubble30.logging.AuditLog;
+import com.lennadi.eventbubble30.logging.AuditService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk-Import von Events aus NDJSON (eine {@link VeranstaltungController.CreateVeranstaltungRequest} pro Zeile).
+ * <p>
+ * Zeilen werden einzeln gelesen und validiert, gültige in Chunks von {@code import.chunk-size} gesammelt und pro Chunk
+ * in einer Transaktion gespeichert (JDBC-Batch, geht nur weil BaseEntity Ids aus einer Sequence bekommt).
+ * Pro Chunk ein Audit-Eintrag. Das Ergebnis jeder Zeile wird sofort zurückgestreamt, im Speicher liegt nie mehr als ein Chunk.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventImportService {
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final Gazetteer gazetteer;
+    private final EventGeoIndex geoIndex;
+    private final EventTextIndex textIndex;
+    private final EventSearchCache searchCache;
+    private final EventClusters clusters;
+    private final AuditService auditService;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Value("${import.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Eine Antwortzeile: entweder {@code line} + {@code id} (gespeichert) oder {@code line} + {@code error},
+     * am Ende einmal {@code done} mit den Summen.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(Long line, Boolean ok, String id, String error, Boolean done, Long imported, Long failed) {
+        static Result ok(long line, String id) {
+            return new Result(line, true, id, null, null, null, null);
+        }
+
+        static Result error(long line, String error) {
+            return new Result(line, false, null, error, null, null, null);
+        }
+
+        static Result done(long imported, long failed) {
+            return new Result(null, null, null, null, true, imported, failed);
+        }
+    }
+
+    /// wer importiert (für Audit), ermittelt im Request-Thread
+    public record Actor(Benutzer benutzer, String ip, String endpoint) {}
+
+    private record Pending(long line, Veranstaltung event) {}
+
+    public void importNdjson(InputStream in, OutputStream out, Benutzer owner, Actor actor) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        List<Pending> chunk = new ArrayList<>(chunkSize);
+        long lineNo = 0, imported = 0, failed = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) continue;
+
+            String error = null;
+            try {
+                VeranstaltungController.CreateVeranstaltungRequest req =
+                        objectMapper.readValue(line, VeranstaltungController.CreateVeranstaltungRequest.class);
+                error = validate(req);
+                if (error == null) chunk.add(new Pending(lineNo, toEntity(req, owner)));
+            } catch (JsonProcessingException e) {
+                error = "invalid json: " + e.getOriginalMessage();
+            }
+
+            if (error != null) {
+                failed++;
+                write(writer, Result.error(lineNo, error));
+            }
+
+            if (chunk.size() >= chunkSize) {
+                long ok = flushChunk(chunk, writer, actor);
+                imported += ok;
+                failed += chunk.size() - ok;
+                chunk.clear();
+                writer.flush();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            long ok = flushChunk(chunk, writer, actor);
+            imported += ok;
+            failed += chunk.size() - ok;
+        }
+
+        if (imported > 0) {
+            searchCache.clear();
+            clusters.clear();
+        }
+
+        write(writer, Result.done(imported, failed));
+        writer.flush();
+    }
+
+    private String validate(VeranstaltungController.CreateVeranstaltungRequest req) {
+        if (req == null) return "empty line";
+        Set<ConstraintViolation<VeranstaltungController.CreateVeranstaltungRequest>> violations = validator.validate(req);
+        if (violations.isEmpty()) return null;
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private Veranstaltung toEntity(VeranstaltungController.CreateVeranstaltungRequest req, Benutzer owner) {
+        Veranstaltung v = new Veranstaltung();
+        v.setTermin(req.termin());
+        v.setTitle(req.title());
+        v.setDescription(req.description());
+        v.setBesitzer(owner);
+        v.setLocation(gazetteer.canonicalize(req.location()));
+        return v;
+    }
+
+    /// @return Anzahl gespeicherter Events (alle oder keins)
+    private long flushChunk(List<Pending> chunk, Writer writer, Actor actor) throws IOException {
+        long first = chunk.get(0).line(), last = chunk.get(chunk.size() - 1).line();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Benutzer owner = chunk.get(0).event().getBesitzer();
+                Benutzer managedOwner = owner != null ? em.getReference(Benutzer.class, owner.getId()) : null;
+                for (Pending p : chunk) {
+                    p.event().setBesitzer(managedOwner);
+                    em.persist(p.event());
+                }
+                em.flush();
+                em.clear();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Import chunk (lines {}-{}) failed: {}", first, last, e.getMessage());
+            for (Pending p : chunk) write(writer, Result.error(p.line(), "chunk failed: " + e.getMessage()));
+            audit(actor, "import failed: lines " + first + "-" + last + ", " + chunk.size() + " events", false);
+            return 0;
+        }
+
+        for (Pending p : chunk) {
+            geoIndex.update(p.event());
+            textIndex.update(p.event());
+            write(writer, Result.ok(p.line(), p.event().getExternalId()));
+        }
+        audit(actor, "imported " + chunk.size() + " events from lines " + first + "-" + last, true);
+        return chunk.size();
+    }
+
+    private void audit(Actor actor, String payload, boolean success) {
+        try {
+            Benutzer b = actor.benutzer();
+            auditService.log(
+                    b, actor.ip(),
+                    b != null ? b.getUsername() : null,
+                    b != null ? Set.copyOf(b.getRoles()) : Set.of(),
+                    AuditLog.Action.IMPORT, payload, success,
+                    actor.endpoint(), EntityType.EVENT, null
+            );
+        } catch (Exception e) {
+            log.error("Audit logging failed (swallowed): {}", e.getMessage(), e);
+        }
+    }
+
+    private void write(Writer writer, Result r) throws IOException {
+        writer.write(objectMapper.writeValueAsString(r));
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,102 @@
+package com.lennadi.eventbubble30.features.service;
+
+import com.lennadi.eventbubble30.config.ServerConfig;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.StringJoiner;
+
+/**
+ * Schreibt iCalendar (RFC 5545) direkt in einen Writer: CRLF, Escaping, Zeilen nach 75 Oktetts gefaltet.
+ * Ein VCALENDAR mit beliebig vielen VEVENTs, ohne den Kalender als String zusammenzubauen.
+ */
+public final class IcsWriter {
+
+    /// ICS requires UTC timestamps in format: yyyyMMdd'T'HHmmss'Z'
+    private static final DateTimeFormatter UTC = DateTimeFormatter
+            .ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private static final int MAX_OCTETS = 75;
+
+    private final Writer out;
+
+    public IcsWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void begin(String calendarName) throws IOException {
+        line("BEGIN:VCALENDAR");
+        line("VERSION:2.0");
+        line("PRODID:-//EventBubble30//EN");
+        line("CALSCALE:GREGORIAN");
+        if (calendarName != null) line("X-WR-CALNAME:" + escape(calendarName));
+    }
+
+    public void event(VeranstaltungsRepository.IcsRow e) throws IOException {
+        Instant stamp = e.modificationDate() != null ? e.modificationDate() : Instant.now();
+
+        line("BEGIN:VEVENT");
+        line("UID:event-" + e.externalId() + "@" + ServerConfig.DOMAIN);
+        line("DTSTAMP:" + UTC.format(stamp));
+        line("LAST-MODIFIED:" + UTC.format(stamp));
+        line("DTSTART:" + UTC.format(e.termin()));
+        line("SUMMARY:" + escape(e.title()));
+        line("DESCRIPTION:" + escape(e.description()));
+
+        String location = location(e);
+        if (location != null) line("LOCATION:" + escape(location));
+        if (e.locLatitude() != null && e.locLongitude() != null) {
+            line("GEO:" + e.locLatitude() + ";" + e.locLongitude());
+        }
+        line("END:VEVENT");
+    }
+
+    public void end() throws IOException {
+        line("END:VCALENDAR");
+        out.flush();
+    }
+
+    private static String location(VeranstaltungsRepository.IcsRow e) {
+        if (e.locDisplayName() != null && !e.locDisplayName().isBlank()) return e.locDisplayName();
+
+        StringJoiner j = new StringJoiner(", ");
+        if (e.locStreet() != null) j.add(e.locStreet());
+        String city = ((e.locPostalCode() != null ? e.locPostalCode() + " " : "") + (e.locCity() != null ? e.locCity() : "")).trim();
+        if (!city.isEmpty()) j.add(city);
+        if (e.locCountry() != null) j.add(e.locCountry());
+        return j.length() == 0 ? null : j.toString();
+    }
+
+    static String escape(String s) {
+        if (s == null) return "";
+        return s
+                .replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+
+    /// Content-Line mit Faltung: nach 75 Oktetts CRLF + Leerzeichen, nie mitten in einem UTF-8-Zeichen
+    private void line(String s) throws IOException {
+        int octets = 0;
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            int len = new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8).length;
+            if (octets + len > MAX_OCTETS) {
+                out.write("\r\n ");
+                octets = 1;
+            }
+            out.write(Character.toChars(cp));
+            octets += len;
+            i += Character.charCount(cp);
+        }
+        out.write("\r\n");
+    }
+}
@@ -0,0 +1,91 @@
+package com.lennadi.eventbubble30.features.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind für {@code benutzer.last_seen} und {@code last_login_date}: pro Benutzer wird nur der letzte Zeitpunkt
+ * im Speicher gehalten und alle {@code last-seen.resolution} gebündelt (ein JDBC-Batch) geschrieben.
+ * Aus einem UPDATE pro Request wird so höchstens eins pro Benutzer und Intervall.
+ * <p>
+ * Angezeigt wird Spalte oder noch offener Wert, je nachdem was neuer ist ({@link #lastSeen}, {@link #lastLogin}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LastSeenService {
+
+    private final JdbcTemplate jdbc;
+
+    /// userId -> epoch millis, merge mit max: ein älterer Request überschreibt nie einen neueren
+    private final Map<Long, Long> seen = new ConcurrentHashMap<>();
+    private final Map<Long, Long> logins = new ConcurrentHashMap<>();
+
+    public void seen(Long userId) {
+        seen.merge(userId, System.currentTimeMillis(), Math::max);
+    }
+
+    /// Login zählt auch als gesehen
+    public void login(Long userId) {
+        long now = System.currentTimeMillis();
+        logins.merge(userId, now, Math::max);
+        seen.merge(userId, now, Math::max);
+    }
+
+    /// @param persisted Wert aus der DB-Spalte
+    public Instant lastSeen(Long userId, Instant persisted) {
+        return newer(persisted, seen.get(userId));
+    }
+
+    public Instant lastLogin(Long userId, Instant persisted) {
+        return newer(persisted, logins.get(userId));
+    }
+
+    private static Instant newer(Instant persisted, Long pending) {
+        if (pending == null) return persisted;
+        Instant p = Instant.ofEpochMilli(pending);
+        return persisted == null || p.isAfter(persisted) ? p : persisted;
+    }
+
+    @Scheduled(fixedDelayString = "${last-seen.resolution:60s}")
+    public synchronized void flush() {
+        flush(seen, "last_seen");
+        flush(logins, "last_login_date");
+    }
+
+    private void flush(Map<Long, Long> pending, String column) {
+        if (pending.isEmpty()) return;
+
+        List<Object[]> batch = new ArrayList<>();
+        for (Long id : List.copyOf(pending.keySet())) {
+            Long millis = pending.remove(id);
+            if (millis != null) batch.add(new Object[]{Timestamp.from(Instant.ofEpochMilli(millis)), id});
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            jdbc.batchUpdate("update benutzer set " + column + " = ? where id = ?", batch);
+        } catch (RuntimeException e) {
+            // zurücklegen, nächster Versuch im nächsten Intervall
+            for (Object[] row : batch) pending.merge((Long) row[1], ((Timestamp) row[0]).getTime(), Math::max);
+            throw e;
+        }
+        log.debug("Flushed {} for {} users", column, batch.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
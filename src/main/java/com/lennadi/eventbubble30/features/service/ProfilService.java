@@ -18,6 +18,7 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
 import java.net.URL;
+import java.time.Instant;
 
 @Service
 @RequiredArgsConstructor
@@ -69,6 +70,12 @@ public class ProfilService {
                 .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND,"/api/profil/"+extId));
     }
 
+    /// nur die Spalte, für Conditional GET
+    public Instant getModificationDate(String extId) {
+        return profilRepo.findModificationDate(extId)
+                .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND,"/api/profil/"+extId));
+    }
+
     @PreAuthorize("@authz.isSelf(#id) or @authz.hasRole('ADMIN')")
     @Transactional
     public Profil updateAvatar(String profilExtId, MultipartFile file) throws IOException {
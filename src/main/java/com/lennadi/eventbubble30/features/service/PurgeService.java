@@ -0,0 +1,109 @@
+package com.lennadi.eventbubble30.features.service;
+
+import com.lennadi.eventbubble30.logging.AuditLog;
+import com.lennadi.eventbubble30.logging.AuditService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Löscht soft-gelöschte Events und Benutzer endgültig, wenn sie älter als {@code purge.retention} sind (so lange
+ * bleiben die Tombstones für den Delta-Sync stehen).
+ * <p>
+ * Läuft in Chunks von {@code purge.chunk-size} Zeilen, jeder Chunk in einer eigenen kurzen Transaktion, dazwischen
+ * {@code purge.pause}. Nach {@code purge.max-duration} wird abgebrochen und in der nächsten Nacht weitergemacht.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PurgeService {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditService auditService;
+
+    @Value("${purge.retention:30d}")
+    private Duration retention;
+
+    @Value("${purge.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${purge.pause:200ms}")
+    private Duration pause;
+
+    @Value("${purge.max-duration:30m}")
+    private Duration maxDuration;
+
+    public void purge() {
+        Instant cutoff = Instant.now().minus(retention);
+        Instant deadline = Instant.now().plus(maxDuration);
+
+        // Events zuerst, sonst hängen noch besitzer_id-Referenzen an den Benutzern
+        long events = run("veranstaltung", cutoff, deadline, this::purgeEvents);
+        long users = run("benutzer", cutoff, deadline, this::purgeUsers);
+
+        auditService.logSystemAction(
+                AuditLog.Action.PURGE,
+                "Purged " + events + " events and " + users + " users deleted before " + cutoff + ".",
+                true,
+                "",
+                null,
+                null
+        );
+    }
+
+    private long run(String table, Instant cutoff, Instant deadline, Consumer<List<Long>> purgeChunk) {
+        long total = 0;
+        while (Instant.now().isBefore(deadline)) {
+            List<Long> ids = jdbc.queryForList(
+                    "select id from " + table + " where deleted_at < :cutoff order by id limit :limit",
+                    Map.of("cutoff", cutoff, "limit", chunkSize),
+                    Long.class
+            );
+            if (ids.isEmpty()) break;
+
+            transactionTemplate.executeWithoutResult(status -> purgeChunk.accept(ids));
+            total += ids.size();
+            log.debug("Purged {} rows from {}", ids.size(), table);
+
+            if (ids.size() < chunkSize) break;
+            try {
+                Thread.sleep(pause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (total > 0) log.info("Purged {} rows from {}", total, table);
+        return total;
+    }
+
+    private void purgeEvents(List<Long> ids) {
+        Map<String, Object> p = Map.of("ids", ids);
+        jdbc.update("delete from benutzer_bookmarked_veranstaltungen where veranstaltung_id in (:ids)", p);
+        jdbc.update("delete from veranstaltung where id in (:ids)", p);
+    }
+
+    private void purgeUsers(List<Long> ids) {
+        Map<String, Object> p = Map.of("ids", ids);
+        jdbc.update("delete from benutzer_bookmarked_veranstaltungen where benutzer_id in (:ids)", p);
+        jdbc.update("delete from benutzer_roles where benutzer_id in (:ids)", p);
+        jdbc.update("delete from password_reset_token where user_id in (:ids)", p);
+        jdbc.update("delete from profil where id in (:ids)", p);
+        // Verlauf behalten, nur die Referenz lösen (usernameSnapshot bleibt)
+        jdbc.update("update audit_log set benutzer_id = null where benutzer_id in (:ids)", p);
+        jdbc.update("update ticket set created_by = null where created_by in (:ids)", p);
+        jdbc.update("update ticket set assigned_to = null where assigned_to in (:ids)", p);
+        jdbc.update("update veranstaltung set besitzer_id = null where besitzer_id in (:ids)", p);
+        jdbc.update("delete from benutzer where id in (:ids)", p);
+    }
+}
@@ -17,6 +17,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+
 @Service
 @RequiredArgsConstructor
 public class TicketService {
@@ -87,6 +89,15 @@ public class TicketService {
                 ));
     }
 
+    /// Ticket oder ein darin angezeigter Benutzer zuletzt geändert, ohne das Ticket zu laden
+    public Instant getLastModified(String externalId) {
+        return ticketRepository.findVersion(externalId)
+                .map(TicketRepository.VersionRow::lastModified)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Ticket not found"
+                ));
+    }
+
     @PreAuthorize("@authz.hasRole('ADMIN') or @authz.hasRole('MODERATOR')")
     @Transactional
     public Ticket patchTicket(String externalId, ModerationController.PatchTicketRequest req) {
@@ -1,33 +1,90 @@
 package com.lennadi.eventbubble30.features.service;
 
-import com.lennadi.eventbubble30.config.ServerConfig;
 import com.lennadi.eventbubble30.exceptions.ErrorCodes;
+import com.lennadi.eventbubble30.features.DTOLevel;
+import com.lennadi.eventbubble30.features.ETags;
 import com.lennadi.eventbubble30.features.controller.VeranstaltungController;
 import com.lennadi.eventbubble30.features.db.Location;
 import com.lennadi.eventbubble30.features.db.entities.Benutzer;
 import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
 import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
 import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.search.EventClusters;
+import com.lennadi.eventbubble30.features.search.EventCursor;
+import com.lennadi.eventbubble30.features.search.EventGeoIndex;
+import com.lennadi.eventbubble30.features.search.EventSearchCache;
+import com.lennadi.eventbubble30.features.search.EventTextIndex;
+import com.lennadi.eventbubble30.features.search.Gazetteer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class VeranstaltungService {
     private final VeranstaltungsRepository veranstaltungRepo;
     private final BenutzerService benutzerService;
     private final BenutzerRepository benutzerRepository;
+    private final EventGeoIndex geoIndex;
+    private final EventTextIndex textIndex;
+    private final EventSearchCache searchCache;
+    private final EventClusters clusters;
+    private final Gazetteer gazetteer;
+    private final BookmarkCountService bookmarkCounts;
+    private final TransactionTemplate transactionTemplate;
 
+    @Value("${search.geo.max-candidates:2000}")
+    private int maxGeoCandidates;
+
+    @Value("${search.text.max-candidates:1000}")
+    private int maxTextCandidates;
+
+    @Value("${ics.max-events:2000}")
+    private int maxFeedEvents;
+
+    /// ohne {@code from} enthalten Feeds nur Events ab jetzt minus diesem Fenster, sonst füllen alte Events das Limit
+    @Value("${ics.past-window:7d}")
+    private Duration feedPastWindow;
+
+    @Value("${sync.settle:5s}")
+    private Duration syncSettle;
+
+    @Value("${purge.retention:30d}")
+    private Duration purgeRetention;
 
     public Veranstaltung getVeranstaltungById(String extId) {
         return veranstaltungRepo.findByExternalIdIgnoreCase(extId)
@@ -37,56 +94,124 @@ public class VeranstaltungService {
                 ));
     }
 
-    public String exportAsIcs(String extId) {//todo abchecken mal ka
-        Veranstaltung vs = getVeranstaltungById(extId);
+    /**
+     * Schwacher ETag für {@code GET /api/events/{id}} aus einer Projektion statt der Entity: Event, Besitzer,
+     * Bookmark-Zähler und ob der aktuelle Nutzer es gemerkt hat.
+     */
+    public String etag(String extId, DTOLevel level) {
+        VeranstaltungsRepository.VersionRow row = veranstaltungRepo.findVersion(extId)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        "Veranstaltung mit id [" + extId + "] nicht gefunden"
+                ));
+        long bookmarks = bookmarkCounts.current(row.getId(), row.getBookmarkCount() != null ? row.getBookmarkCount() : 0);
+        boolean bookmarked = !benutzerService.bookmarkedAmong(Set.of(row.getId())).isEmpty();
 
-        // ICS requires UTC timestamps in format: yyyyMMdd'T'HHmmss'Z'
-        Instant start = vs.getTermin();
-        String dtStart = java.time.format.DateTimeFormatter
-                .ofPattern("yyyyMMdd'T'HHmmss'Z'")
-                .withZone(java.time.ZoneOffset.UTC)
-                .format(start);
-
-        String uid = "event-" + extId + "@"+ ServerConfig.DOMAIN;
-
-        return """
-            BEGIN:VCALENDAR
-            VERSION:2.0
-            PRODID:-//EventBubble30//EN
-            BEGIN:VEVENT
-            UID:%s
-            DTSTAMP:%s
-            DTSTART:%s
-            SUMMARY:%s
-            DESCRIPTION:%s
-            END:VEVENT
-            END:VCALENDAR
-            """.formatted(
-                uid,
-                dtStart,
-                dtStart,
-                escape(vs.getTitle()),
-                escape(vs.getDescription() == null ? "" : vs.getDescription())
+        return ETags.weak(
+                extId.toLowerCase(), row.getModificationDate(), row.getOwnerModificationDate(),
+                level, bookmarked ? 1 : 0, bookmarks
         );
     }
-    private String escape(String s) {
-        return s
-                .replace("\\", "\\\\")
-                .replace(",", "\\,")
-                .replace(";", "\\;")
-                .replace("\n", "\\n");
+
+    public String exportAsIcs(String extId) {
+        Veranstaltung vs = getVeranstaltungById(extId);
+
+        StringWriter out = new StringWriter();
+        try {
+            IcsWriter ics = new IcsWriter(out);
+            ics.begin(null);
+            ics.event(VeranstaltungsRepository.IcsRow.of(vs));
+            ics.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /// //////////////////////////////////////////////////////////////////ICS-Feeds
+
+    /**
+     * Feed zu einer Suche: gleiche Filter wie {@link #search}, nur Events mit Termin.
+     *
+     * @return {@code null}, wenn sicher nichts passt
+     */
+    public Specification<Veranstaltung> feedSpec(VeranstaltungController.EventSearch s) {
+        Specification<Veranstaltung> spec = buildSpec(s, textHits(s), false);
+        if (spec == null) return null;
+        spec = spec.and(VeranstaltungsRepository.Specs.hasTermin());
+        return s.from() != null ? spec : spec.and(feedWindow());
+    }
+
+    public Specification<Veranstaltung> bookmarkFeedSpec(String userExtId) {
+        Benutzer b = benutzerRepository.findByExternalIdIgnoreCase(userExtId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Benutzer nicht gefunden"));
+        return VeranstaltungsRepository.Specs.bookmarkedBy(b.getId())
+                .and(VeranstaltungsRepository.Specs.hasTermin())
+                .and(feedWindow());
+    }
+
+    private Specification<Veranstaltung> feedWindow() {
+        return VeranstaltungsRepository.Specs.dateBetween(Instant.now().minus(feedPastWindow), null);
+    }
+
+    /// für ETag/Last-Modified, eine Aggregat-Abfrage statt den Feed zu bauen
+    public VeranstaltungsRepository.FeedState feedState(Specification<Veranstaltung> spec) {
+        if (spec == null) return new VeranstaltungsRepository.FeedState(null, 0, 0);
+        return veranstaltungRepo.feedState(spec);
     }
 
+    /**
+     * Schreibt den Feed direkt aus dem DB-Cursor in {@code out}, nach Termin sortiert und auf {@code ics.max-events} begrenzt
+     * (die Specs aus {@link #feedSpec}/{@link #bookmarkFeedSpec} beginnen ohne {@code from} bei jetzt minus {@code ics.past-window}).
+     * Es liegt nie der ganze Kalender im Speicher.
+     */
+    @Transactional(readOnly = true)
+    public void writeFeed(Specification<Veranstaltung> spec, Writer out, String name) throws IOException {
+        IcsWriter ics = new IcsWriter(out);
+        ics.begin(name);
+        if (spec != null) {
+            try (Stream<VeranstaltungsRepository.IcsRow> rows = veranstaltungRepo.streamIcsRows(
+                    spec, Sort.by(Sort.Direction.ASC, "termin").and(Sort.by("id")), maxFeedEvents)) {
+                Iterator<VeranstaltungsRepository.IcsRow> it = rows.iterator();
+                while (it.hasNext()) ics.event(it.next());
+            }
+        }
+        ics.end();
+    }
 
     @PreAuthorize("@authz.isEventOwner(#extId) or hasRole('ADMIN')")
     public void deleteVeranstaltungById(String extId) {
-        veranstaltungRepo.delete(getVeranstaltungById(extId));
+        Veranstaltung v = getVeranstaltungById(extId);
+        EventSearchCache.Footprint before = EventSearchCache.Footprint.of(v);
+        // soft delete, bleibt als Tombstone für den Delta-Sync stehen
+        v.softDelete();
+        veranstaltungRepo.save(v);
+        geoIndex.remove(v.getId());
+        textIndex.remove(v.getId());
+        bookmarkCounts.forget(v.getId());
+        searchCache.invalidate(before, null);
+        clusters.invalidate(before, null);
+    }
+
+    /// Events eines gelöschten Benutzers sind per Bulk-Update soft-gelöscht, hier nur noch Indizes/Caches nachziehen
+    @TransactionalEventListener
+    public void onBenutzerDeleted(BenutzerService.Deleted e) {
+        for (Long id : e.eventIds()) {
+            geoIndex.remove(id);
+            textIndex.remove(id);
+            bookmarkCounts.forget(id);
+        }
+        if (!e.eventIds().isEmpty()) {
+            searchCache.clear();
+            clusters.clear();
+        }
     }
 
     @PreAuthorize("@authz.isEventOwner(#extId) or hasRole('ADMIN')")
     public Veranstaltung patchVeranstaltungById(String extId, Instant termin, String title, String description, Location location) {
         Veranstaltung veranstaltung = veranstaltungRepo.findByExternalIdIgnoreCase(extId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Veranstaltung nicht gefunden"));
+        EventSearchCache.Footprint before = EventSearchCache.Footprint.of(veranstaltung);
 
         if(termin!=null)
             veranstaltung.setTermin(termin);
@@ -95,9 +220,9 @@ public class VeranstaltungService {
         if(description!=null)
             veranstaltung.setDescription(description);
         if(location!=null)
-            veranstaltung.setLocation(location);
+            veranstaltung.setLocation(gazetteer.canonicalize(location));
 
-        return veranstaltungRepo.save(veranstaltung);
+        return reindex(veranstaltungRepo.save(veranstaltung), before);
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -107,36 +232,323 @@ public class VeranstaltungService {
         veranstaltung.setTitle(title);
         veranstaltung.setDescription(description);
         veranstaltung.setBesitzer(besitzer);
-        veranstaltung.setLocation(loc);
-
-        return veranstaltungRepo.save(veranstaltung);
-    }
-
-    public Page<Veranstaltung> search(VeranstaltungController.EventSearch s, int page, int size) {
-
-        Specification<Veranstaltung> spec = VeranstaltungsRepository.Specs.textSearch(s.q())
-                        .and(VeranstaltungsRepository.Specs.inCity(s.city()))
-                        .and(VeranstaltungsRepository.Specs.inBoundingBox(
-                                s.minLat(), s.minLon(),
-                                s.maxLat(), s.maxLon()
-                        ))
-                        .and(VeranstaltungsRepository.Specs.near(
-                                s.nearLat(), s.nearLon(), s.radiusKm()
-                        ))
-                        .and(VeranstaltungsRepository.Specs.dateBetween(s.from(), s.to()))
-                        .and(VeranstaltungsRepository.Specs.ownedBy(s.ownerId()));
-
-        Sort sort = Sort.by(
-                s.orderDir() == VeranstaltungsRepository.OrderDir.asc
-                        ? Sort.Direction.ASC
-                        : Sort.Direction.DESC,
-                s.orderBy().name()
+        veranstaltung.setLocation(gazetteer.canonicalize(loc));
+
+        return reindex(veranstaltungRepo.save(veranstaltung), null);
+    }
+
+    /// Events von vor dem Gazetteer haben noch keinen cityKey, ohne den findet inCity sie nicht
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCityKeys() {
+        long after = 0;
+        int n = 0;
+        List<VeranstaltungsRepository.CityRow> batch;
+        do {
+            batch = veranstaltungRepo.findCityRowsWithoutKeyAfter(after, PageRequest.ofSize(500));
+            if (batch.isEmpty()) break;
+
+            // eine Transaktion pro Seite, ein Update pro cityKey
+            Map<String, List<Long>> byKey = new HashMap<>();
+            for (VeranstaltungsRepository.CityRow row : batch) {
+                byKey.computeIfAbsent(gazetteer.cityKey(row.getCity()), k -> new ArrayList<>()).add(row.getId());
+            }
+            transactionTemplate.executeWithoutResult(status ->
+                    byKey.forEach((key, ids) -> veranstaltungRepo.updateCityKeys(ids, key)));
+
+            after = batch.get(batch.size() - 1).getId();
+            n += batch.size();
+        } while (batch.size() == 500);
+
+        if (n > 0) log.info("Backfilled city keys for {} events", n);
+    }
+
+    /// @param before Zustand vor dem Patch ({@code null} bei create)
+    private Veranstaltung reindex(Veranstaltung v, EventSearchCache.Footprint before) {
+        geoIndex.update(v);
+        textIndex.update(v);
+        EventSearchCache.Footprint after = EventSearchCache.Footprint.of(v);
+        searchCache.invalidate(before, after);
+        clusters.invalidate(before, after);
+        return v;
+    }
+
+    /**
+     * Suche für Listen: lädt nur Card-Spalten ({@link VeranstaltungsRepository.CardRow}), keine Entities.
+     * Die Ids einer Ergebnisseite landen im {@link EventSearchCache}, bei einem Treffer werden nur noch die Cards per Id geladen.
+     */
+    public Page<VeranstaltungsRepository.CardRow> search(VeranstaltungController.EventSearch search, int page, int size) {
+        EventSearchCache.Key key = searchCache.key(search, page, size);
+
+        EventSearchCache.Entry cached = searchCache.get(key);
+        if (cached != null) {
+            return new PageImpl<>(findCardsByIds(cached.ids()), cached.pageable(), cached.total());
+        }
+
+        long generation = searchCache.generation();
+        Page<VeranstaltungsRepository.CardRow> result = query(key.search(), page, size);
+        searchCache.put(
+                key, generation,
+                result.getContent().stream().map(VeranstaltungsRepository.CardRow::id).toList(),
+                result.getPageable(), result.getTotalElements()
         );
+        return result;
+    }
+
+    /**
+     * Delta-Sync: alles, was sich nach {@code after} geändert hat (auch Löschungen), in (modificationDate, id)-Reihenfolge.
+     * Es wird nur bis {@code sync.settle} vor jetzt geliefert, damit eine gerade noch laufende Transaktion mit älterem
+     * Zeitstempel nicht hinter dem Cursor des Clients landet.
+     */
+    public Slice<VeranstaltungsRepository.ChangeRow> changes(EventCursor after, int size) {
+        if (after != null && after.value().isBefore(Instant.now().minus(purgeRetention))) {
+            // Tombstones davor sind evtl. schon weg
+            throw new ResponseStatusException(HttpStatus.GONE, "cursor is older than the tombstone retention, resync from scratch");
+        }
+
+        Instant since = after != null ? after.value() : Instant.EPOCH;
+        long afterId = after != null ? after.id() : 0;
 
-        return veranstaltungRepo.findAll(
-                spec,
-                PageRequest.of(page, size, sort)
+        List<VeranstaltungsRepository.ChangeRow> rows = veranstaltungRepo.findChanges(
+                since, afterId, Instant.now().minus(syncSettle), size + 1
         );
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, PageRequest.ofSize(size), hasNext);
+    }
+
+    /// Cards für die nicht gelöschten Zeilen eines Delta-Sync, per id
+    public Map<Long, VeranstaltungsRepository.CardRow> changedCards(List<VeranstaltungsRepository.ChangeRow> rows) {
+        List<Long> ids = rows.stream()
+                .filter(r -> !r.deleted())
+                .map(VeranstaltungsRepository.ChangeRow::id)
+                .toList();
+
+        Map<Long, VeranstaltungsRepository.CardRow> ret = new HashMap<>();
+        for (VeranstaltungsRepository.CardRow c : findCardsByIds(ids)) ret.put(c.id(), c);
+        return ret;
+    }
+
+    /// Karten-Cluster für die bbox der Suche, berücksichtigt q/from/to
+    public EventClusters.Result clusters(VeranstaltungController.EventSearch s, int zoom) {
+        return clusters.clusters(
+                s.minLat(), s.minLon(), s.maxLat(), s.maxLon(), zoom,
+                s.from(), s.to(), s.q()
+        );
+    }
+
+    /// Cards in der Reihenfolge von ids
+    private List<VeranstaltungsRepository.CardRow> findCardsByIds(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+
+        Map<Long, VeranstaltungsRepository.CardRow> byId = new HashMap<>();
+        for (VeranstaltungsRepository.CardRow r : veranstaltungRepo.findCards(VeranstaltungsRepository.Specs.idIn(ids), Sort.unsorted(), 0, 0)) {
+            byId.put(r.id(), r);
+        }
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    private Page<VeranstaltungsRepository.CardRow> query(VeranstaltungController.EventSearch s, int page, int size) {
+
+        EventTextIndex.Hits hits = textHits(s);
+        boolean byRelevance = s.orderBy() == VeranstaltungsRepository.OrderBy.relevance && hits != null;
+
+        Sort sort = byRelevance ? Sort.unsorted() : sort(s);
+        PageRequest pageable = PageRequest.of(page, size, sort);
+
+        Specification<Veranstaltung> spec = buildSpec(s, hits, byRelevance);
+        if (spec == null) {
+            return Page.empty(pageable);
+        }
+
+        if (byRelevance) {
+            // Kandidaten sind durch search.text.max-candidates begrenzt -> im Speicher nach Score sortieren
+            List<VeranstaltungsRepository.CardRow> all = new ArrayList<>(veranstaltungRepo.findCards(spec, Sort.unsorted(), 0, 0));
+            all.sort(Comparator.comparingDouble(
+                    (VeranstaltungsRepository.CardRow r) -> hits.scores().getOrDefault(r.id(), 0.0)
+            ).reversed());
+
+            int from = (int) Math.min(pageable.getOffset(), all.size());
+            int to = Math.min(from + size, all.size());
+            return new PageImpl<>(all.subList(from, to), pageable, all.size());
+        }
+
+        List<VeranstaltungsRepository.CardRow> rows = sortsByTermin(s)
+                ? pageTerminLast(spec, sort, direction(s), pageable.getOffset(), size)
+                : veranstaltungRepo.findCards(spec, sort, pageable.getOffset(), size);
+        // count nur, wenn die Seite ihn nicht schon verrät (erste/letzte Seite)
+        return PageableExecutionUtils.getPage(rows, pageable, () -> veranstaltungRepo.count(spec));
+    }
+
+    /**
+     * Keyset-Variante von {@link #search}: sucht ab {@code after} weiter (null = erste Seite), ohne OFFSET und ohne count.
+     * Es wird eine Zeile mehr geladen, um hasNext zu bestimmen.
+     */
+    public Slice<VeranstaltungsRepository.CardRow> searchAfter(VeranstaltungController.EventSearch s, EventCursor after, int size) {
+        if (s.orderBy() == VeranstaltungsRepository.OrderBy.relevance
+                || s.orderBy() == VeranstaltungsRepository.OrderBy.popularity) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "orderBy=" + s.orderBy() + " is not supported with cursor");
+        }
+
+        PageRequest pageable = PageRequest.ofSize(size);
+
+        Specification<Veranstaltung> spec = buildSpec(s, textHits(s), false);
+        if (spec == null) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+
+        boolean nullPhase = after != null && after.id() != null && after.value() == null;
+        List<VeranstaltungsRepository.CardRow> rows = new ArrayList<>(size + 1);
+
+        if (!nullPhase) {
+            rows.addAll(veranstaltungRepo.findCards(
+                    spec.and(VeranstaltungsRepository.Specs.seek(
+                            s.orderBy(), s.orderDir(),
+                            after != null ? after.value() : null,
+                            after != null ? after.id() : null
+                    )),
+                    VeranstaltungsRepository.Specs.seekOrder(sortField(s), direction(s)),
+                    0, size + 1
+            ));
+        }
+
+        // Events ohne Termin kommen zuletzt, als eigene Phase nur nach id
+        if (sortsByTermin(s) && rows.size() <= size) {
+            rows.addAll(veranstaltungRepo.findCards(
+                    spec.and(VeranstaltungsRepository.Specs.seekNull(
+                            VeranstaltungsRepository.OrderBy.termin, s.orderDir(), nullPhase ? after.id() : null
+                    )),
+                    Sort.by(direction(s), "id"),
+                    0, size + 1 - rows.size()
+            ));
+        }
+
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, pageable, hasNext);
+    }
+
+    private EventTextIndex.Hits textHits(VeranstaltungController.EventSearch s) {
+        if (s.q() == null || s.q().isBlank()) return null;
+        return textIndex.search(s.q(), maxTextCandidates);
+    }
+
+    private static Sort.Direction direction(VeranstaltungController.EventSearch s) {
+        return s.orderDir() == VeranstaltungsRepository.OrderDir.asc
+                ? Sort.Direction.ASC
+                : Sort.Direction.DESC;
+    }
+
+    private static String sortField(VeranstaltungController.EventSearch s) {
+        return switch (s.orderBy()) {
+            case relevance -> VeranstaltungsRepository.OrderBy.termin.name();
+            case popularity -> "bookmarkCount";
+            default -> s.orderBy().name();
+        };
+    }
+
+    private static boolean sortsByTermin(VeranstaltungController.EventSearch s) {
+        return VeranstaltungsRepository.OrderBy.termin.name().equals(sortField(s));
+    }
+
+    /// id als Tiebreaker; popularity bei Gleichstand nach termin, absteigend genau die Reihenfolge von idx_event_popularity
+    private static Sort sort(VeranstaltungController.EventSearch s) {
+        if (s.orderBy() == VeranstaltungsRepository.OrderBy.popularity) {
+            return Sort.by(direction(s), sortField(s)).and(Sort.by(Sort.Direction.ASC, "termin", "id"));
+        }
+        return Sort.by(direction(s), sortField(s), "id");
+    }
+
+    /**
+     * Offset-Seite mit Events ohne Termin zuletzt, wie im Cursor-Modus: erst die mit Termin, dann die ohne nach id,
+     * als wären beide Abfragen aneinandergehängt. Beide laufen über idx_event_termin, ohne NULLS LAST im ORDER BY.
+     */
+    private List<VeranstaltungsRepository.CardRow> pageTerminLast(
+            Specification<Veranstaltung> spec, Sort sort, Sort.Direction dir, long offset, int size
+    ) {
+        Specification<Veranstaltung> dated = spec.and(VeranstaltungsRepository.Specs.hasTermin());
+        List<VeranstaltungsRepository.CardRow> rows = new ArrayList<>(veranstaltungRepo.findCards(dated, sort, offset, size));
+        if (rows.size() == size) return rows;
+
+        // wie viele mit Termin es gibt, verrät die Seite selbst, außer sie liegt schon ganz dahinter
+        long datedCount = !rows.isEmpty() || offset == 0 ? offset + rows.size() : veranstaltungRepo.count(dated);
+        rows.addAll(veranstaltungRepo.findCards(
+                spec.and(VeranstaltungsRepository.Specs.seekNull(
+                        VeranstaltungsRepository.OrderBy.termin, VeranstaltungsRepository.OrderDir.asc, null
+                )),
+                Sort.by(dir, "id"),
+                offset + rows.size() - datedCount,
+                size - rows.size()
+        ));
+        return rows;
+    }
+
+    /**
+     * @return alle Filter der Suche als eine Spec, oder {@code null} wenn sicher nichts gefunden wird
+     */
+    private Specification<Veranstaltung> buildSpec(VeranstaltungController.EventSearch s, EventTextIndex.Hits hits, boolean byRelevance) {
+        Specification<Veranstaltung> geo = geoSpec(s);
+        Specification<Veranstaltung> text = textSpec(s, hits, byRelevance);
+        if (geo == null || text == null) return null;
+
+        return text
+                .and(VeranstaltungsRepository.Specs.inCity(gazetteer.cityKey(s.city())))
+                .and(geo)
+                .and(VeranstaltungsRepository.Specs.dateBetween(s.from(), s.to()))
+                .and(VeranstaltungsRepository.Specs.ownedBy(s.ownerId()));
+    }
+
+    /**
+     * q über den {@link EventTextIndex}. Ohne verwertbare Terme, oder wenn zu viele Treffer für eine
+     * nicht-Relevanz-Sortierung abgeschnitten wurden, bleibt es beim alten LIKE.
+     *
+     * @return Spec für den Textteil der Suche, oder {@code null} wenn sicher nichts gefunden wird
+     */
+    private Specification<Veranstaltung> textSpec(VeranstaltungController.EventSearch s, EventTextIndex.Hits hits, boolean byRelevance) {
+        if (hits == null || (hits.truncated() && !byRelevance)) {
+            return VeranstaltungsRepository.Specs.textSearch(s.q());
+        }
+        if (hits.scores().isEmpty()) return null;
+
+        return VeranstaltungsRepository.Specs.idIn(hits.scores().keySet());
+    }
+
+    /**
+     * Löst bbox/near über den {@link EventGeoIndex} in eine Id-Menge auf (near dabei exakt per Haversine).
+     * Sind es mehr als {@code search.geo.max-candidates} Treffer, wird auf die DB-Bereichsabfragen zurückgefallen
+     * (near auch dort exakt, siehe {@link VeranstaltungsRepository.Specs#near}).
+     *
+     * @return Spec für den räumlichen Teil der Suche, oder {@code null} wenn sicher nichts gefunden wird
+     */
+    private Specification<Veranstaltung> geoSpec(VeranstaltungController.EventSearch s) {
+        Set<Long> ids = null;
+        Specification<Veranstaltung> fallback = VeranstaltungsRepository.Specs.idIn(null);
+
+        if (s.minLat() != null) {
+            Set<Long> box = geoIndex.withinBox(s.minLat(), s.minLon(), s.maxLat(), s.maxLon(), maxGeoCandidates);
+            if (box == null) {
+                fallback = fallback.and(VeranstaltungsRepository.Specs.inBoundingBox(
+                        s.minLat(), s.minLon(),
+                        s.maxLat(), s.maxLon()
+                ));
+            } else {
+                ids = box;
+            }
+        }
+
+        if (s.nearLat() != null && s.nearLon() != null && s.radiusKm() != null) {
+            Set<Long> near = geoIndex.withinRadius(s.nearLat(), s.nearLon(), s.radiusKm(), maxGeoCandidates);
+            if (near == null) {
+                fallback = fallback.and(VeranstaltungsRepository.Specs.near(
+                        s.nearLat(), s.nearLon(), s.radiusKm()
+                ));
+            } else if (ids == null) {
+                ids = near;
+            } else {
+                ids.retainAll(near);
+            }
+        }
+
+        if (ids != null && ids.isEmpty()) return null;
+
+        return fallback.and(VeranstaltungsRepository.Specs.idIn(ids));
     }
 
     public Veranstaltung bookmark(Veranstaltung pV, boolean bookmarked) {
@@ -145,9 +557,15 @@ public class VeranstaltungService {
 
         Set<Veranstaltung> bo = cur.getBookmarkedVeranstaltungen();
         if(bookmarked){
-            if(!bo.contains(pV)) cur.getBookmarkedVeranstaltungen().add(pV);
+            if(!bo.contains(pV)) {
+                cur.getBookmarkedVeranstaltungen().add(pV);
+                bookmarkCounts.increment(pV.getId());
+            }
         }else{
-            if(bo.contains(pV)) cur.getBookmarkedVeranstaltungen().remove(pV);
+            if(bo.contains(pV)) {
+                cur.getBookmarkedVeranstaltungen().remove(pV);
+                bookmarkCounts.decrement(pV.getId());
+            }
         }
 
         return veranstaltungRepo.save(pV);
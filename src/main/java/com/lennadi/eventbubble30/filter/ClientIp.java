@@ -0,0 +1,22 @@
+package com.lennadi.eventbubble30.filter;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/// Client-IP hinter dem Reverse Proxy: letzter Eintrag in X-Forwarded-For (den hängt unser Proxy an, der Rest ist fälschbar)
+public final class ClientIp {
+    private ClientIp() {}
+
+    public static String of(HttpServletRequest request) {
+        String xff = request.getHeader("X-Forwarded-For");
+        if (xff != null && !xff.isBlank()) {
+            String[] parts = xff.split(",");
+            for (int i = parts.length - 1; i >= 0; i--) {
+                String candidate = parts[i].trim();
+                if (!candidate.isBlank()) {
+                    return candidate;
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -1,7 +1,7 @@
 package com.lennadi.eventbubble30.filter;
 
 import com.lennadi.eventbubble30.security.BenutzerDetails;
-import com.lennadi.eventbubble30.features.service.BenutzerService;
+import com.lennadi.eventbubble30.features.service.LastSeenService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,7 +21,7 @@ import java.io.IOException;
 public class LastSeenFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(LastSeenFilter.class);
-    private final BenutzerService benutzerService;
+    private final LastSeenService lastSeenService;
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -29,7 +29,7 @@ public class LastSeenFilter extends OncePerRequestFilter {
                                     @NonNull FilterChain filterChain)
             throws ServletException, IOException {
 
-        String ip = getClientIp(request);
+        String ip = ClientIp.of(request);
         try {
             var auth = SecurityContextHolder.getContext().getAuthentication();
 
@@ -40,7 +40,7 @@ public class LastSeenFilter extends OncePerRequestFilter {
                 log.info("[Anfrage] {}@{}: {}", auth.getName(), ip, request.getRequestURI());
 
                 try {
-                    benutzerService.seen(userId);
+                    lastSeenService.seen(userId); // nur im Speicher, geschrieben wird gebündelt
                 } catch (RuntimeException ex) {
                     log.warn("Error while updating seen for user {}: {}", userId, ex.getMessage());
                 }
@@ -55,18 +55,4 @@ public class LastSeenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
-            return ip.split(",")[0].trim();
-        }
-
-        ip = request.getHeader("X-Real-IP");
-        if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
-            return ip.trim();
-        }
-
-        return request.getRemoteAddr();
-    }
-
 }
@@ -0,0 +1,131 @@
+package com.lennadi.eventbubble30.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lennadi.eventbubble30.exceptions.ApiErrorResponse;
+import com.lennadi.eventbubble30.exceptions.ErrorCodes;
+import com.lennadi.eventbubble30.security.AuthState;
+import com.lennadi.eventbubble30.security.BenutzerDetails;
+import com.lennadi.eventbubble30.security.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Begrenzt teure bzw. missbrauchbare Endpunkte (BCrypt, Mails, Schreibzugriffe), bevor Spring MVC, JPA oder der
+ * AuditAspect etwas davon sehen. Läuft nach dem {@link JwtAuthFilter}: eingeloggte Benutzer werden nach Id gezählt,
+ * alle anderen nach Client-IP ({@link ClientIp}).
+ * <p>
+ * Pro Gruppe ein eigener {@link RateLimiter}, konfiguriert über {@code rate-limit.<gruppe>.limit/window}.
+ * Abgelehnt wird mit 429 und {@code Retry-After}, Metrik {@code ratelimit.rejected{group}}.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private record Group(String name, String method, List<String> paths, RateLimiter limiter) {}
+
+    private final List<Group> groups;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
+
+    public RateLimitFilter(
+            ObjectMapper objectMapper,
+            MeterRegistry registry,
+            @Value("${rate-limit.max-keys:100000}") int maxKeys,
+            @Value("${rate-limit.login.limit:10}") int loginLimit,
+            @Value("${rate-limit.login.window:1m}") Duration loginWindow,
+            @Value("${rate-limit.signup.limit:5}") int signupLimit,
+            @Value("${rate-limit.signup.window:1h}") Duration signupWindow,
+            @Value("${rate-limit.mail.limit:5}") int mailLimit,
+            @Value("${rate-limit.mail.window:15m}") Duration mailWindow,
+            @Value("${rate-limit.event-create.limit:30}") int eventLimit,
+            @Value("${rate-limit.event-create.window:1h}") Duration eventWindow
+    ) {
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+        this.groups = List.of(
+                new Group("login", "POST", List.of("/api/auth/login"),
+                        new RateLimiter(loginLimit, loginWindow, maxKeys)),
+                new Group("signup", "POST", List.of("/api/auth/signup"),
+                        new RateLimiter(signupLimit, signupWindow, maxKeys)),
+                new Group("mail", "POST", List.of("/api/auth/request-password-reset", "/api/auth/request-email-verification"),
+                        new RateLimiter(mailLimit, mailWindow, maxKeys)),
+                new Group("event-create", "POST", List.of("/api/events/create"),
+                        new RateLimiter(eventLimit, eventWindow, maxKeys))
+        );
+        for (Group g : groups) {
+            registry.gauge("ratelimit.keys", List.of(Tag.of("group", g.name())),
+                    g.limiter(), RateLimiter::size);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Group group = match(request);
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimiter.Decision d = group.limiter().tryAcquire(key(request));
+        if (d.allowed()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        registry.counter("ratelimit.rejected", "group", group.name()).increment();
+        log.warn("Rate limit {} exceeded by {}", group.name(), key(request));
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(d.retryAfterSeconds()));
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        AuthState state = (AuthState) request.getAttribute("jwt_state");
+        objectMapper.writeValue(response.getWriter(), new ApiErrorResponse(
+                ErrorCodes.RATE_LIMITED.toString(), request.getRequestURI(), state != null ? state : AuthState.UNKNOWN
+        ));
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.evict-interval:1m}")
+    public void evictIdle() {
+        for (Group g : groups) g.limiter().evictIdle();
+    }
+
+    /// //////////////////////////////////////////////////////////////////intern
+
+    private Group match(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Group g : groups) {
+            if (g.method().equalsIgnoreCase(request.getMethod()) && g.paths().contains(path)) return g;
+        }
+        return null;
+    }
+
+    private static String key(HttpServletRequest request) {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof BenutzerDetails details) {
+            return "u:" + details.getId();
+        }
+        return "ip:" + ClientIp.of(request);
+    }
+}
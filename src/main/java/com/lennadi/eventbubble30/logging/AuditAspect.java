@@ -1,10 +1,8 @@
 package com.lennadi.eventbubble30.logging;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.lennadi.eventbubble30.features.db.entities.Benutzer;
 import com.lennadi.eventbubble30.features.service.BenutzerService;
+import com.lennadi.eventbubble30.filter.ClientIp;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,15 +10,13 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.Expression;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.time.Instant;
-import java.util.Arrays;
 import java.util.Set;
 
 @Slf4j
@@ -32,8 +28,7 @@ public class AuditAspect {
     private final BenutzerService benutzerService;
     private final HttpServletRequest request;
     private final AuditService auditService;
-    private final ObjectMapper mapper = new ObjectMapper();
-    private static final String MASK = "***REDACTED***";
+    private final AuditPayloadSerializer payloadSerializer = new AuditPayloadSerializer(AuditLog.PAYLOAD_LENGTH);
 
     // ====================================================================
     //                            MAIN AROUND ADVICE
@@ -56,15 +51,16 @@ public class AuditAspect {
         } finally {
             try {
                 boolean success = (thrown == null);
+                AuditMetadata meta = AuditMetadata.of(((MethodSignature) pjp.getSignature()).getMethod(), audit);
 
                 String resourceId = null;
 
                 // 0) NEW: resourceIdExpression (SpEL) – top priority
-                resourceId = evalResourceIdExpression(audit, pjp, result, thrown);
+                resourceId = evalResourceIdExpression(meta, pjp, result, thrown);
 
                 // 1) explicit param name
                 if (resourceId == null)
-                    resourceId = extractResourceIdParam(pjp, audit.resourceIdParam());
+                    resourceId = extractResourceIdParam(meta, pjp);
 
                 // 2) extract from returned object
                 if (resourceId == null)
@@ -93,23 +89,22 @@ public class AuditAspect {
     // ====================================================================
 
     private String evalResourceIdExpression(
-            Audit audit,
+            AuditMetadata meta,
             ProceedingJoinPoint pjp,
             Object result,
             Exception thrown
     ) {
-        String expr = audit.resourceIdExpression();
-        if (expr == null || expr.isBlank()) return null;
+        Expression expr = meta.resourceIdExpression;
+        if (expr == null) return null;
 
         try {
             StandardEvaluationContext ctx = new StandardEvaluationContext();
 
             // Add method parameters as variables
-            MethodSignature sig = (MethodSignature) pjp.getSignature();
-            String[] paramNames = sig.getParameterNames();
+            String[] paramNames = meta.parameterNames;
             Object[] args = pjp.getArgs();
 
-            for (int i = 0; i < paramNames.length; i++) {
+            for (int i = 0; i < paramNames.length && i < args.length; i++) {
                 ctx.setVariable(paramNames[i], args[i]);
             }
 
@@ -119,14 +114,13 @@ public class AuditAspect {
             ctx.setVariable("currentUser", safeGetUser());
             ctx.setVariable("request", request);
 
-            ExpressionParser parser = new SpelExpressionParser();
-            Object val = parser.parseExpression(expr).getValue(ctx);
+            Object val = expr.getValue(ctx);
 
             if (val instanceof String n) return n;
             return null;
 
         } catch (Exception e) {
-            log.warn("Failed to evaluate resourceIdExpression '{}': {}", expr, e.getMessage());
+            log.warn("Failed to evaluate resourceIdExpression '{}': {}", expr.getExpressionString(), e.getMessage());
             return null;
         }
     }
@@ -135,19 +129,12 @@ public class AuditAspect {
     //                  RESOURCE ID EXTRACTION (PARAMETER)
     // ====================================================================
 
-    private String extractResourceIdParam(ProceedingJoinPoint pjp, String paramName) {
-        if (paramName == null || paramName.isBlank()) return null;
+    private String extractResourceIdParam(AuditMetadata meta, ProceedingJoinPoint pjp) {
+        int idx = meta.resourceIdParamIndex;
+        if (idx < 0) return null;
 
-        MethodSignature sig = (MethodSignature) pjp.getSignature();
-        String[] params = sig.getParameterNames();
         Object[] args = pjp.getArgs();
-
-        for (int i = 0; i < params.length; i++) {
-            if (params[i].equals(paramName)) {
-                return extractIdFromObject(args[i]);
-            }
-        }
-        return null;
+        return idx < args.length ? extractIdFromObject(args[idx]) : null;
     }
 
     // ====================================================================
@@ -176,27 +163,9 @@ public class AuditAspect {
     //                     UNIVERSAL ID EXTRACTOR
     // ====================================================================
 
+    /// Benutzer/Benutzer.DTO direkt, sonst Feld external_id bzw. id (Getter pro Klasse gecacht)
     private String extractIdFromObject(Object obj) {
-        if (obj == null) return null;
-
-        if (obj instanceof Benutzer b) return b.getExternalId();
-        if (obj instanceof Benutzer.DTO dto) return dto.id();
-
-        try {
-            Field f = obj.getClass().getDeclaredField("external_id");
-            f.setAccessible(true);
-            Object val = f.get(obj);
-            if (val instanceof String num) return num;
-        } catch (Exception ignore) {}
-
-        try {
-            Field f = obj.getClass().getDeclaredField("id");
-            f.setAccessible(true);
-            Object val = f.get(obj);
-            if (val instanceof String num) return num;
-        } catch (Exception ignore) {}
-
-        return null;
+        return AuditMetadata.extractId(obj);
     }
 
     // ====================================================================
@@ -238,11 +207,11 @@ public class AuditAspect {
             String resourceId
     ) {
         Benutzer user = safeGetUser();
-        String payload = serializeArgs(pjp.getArgs());
+        String payload = serializeArgs(pjp, audit);
 
         auditService.log(
                 user,
-                getClientIp(),
+                ClientIp.of(request),
                 user != null ? user.getUsername() : null,
                 user != null ? Set.copyOf(user.getRoles()) : Set.of(),
                 audit.action(),
@@ -258,55 +227,16 @@ public class AuditAspect {
     //                       SENSITIVE DATA MASKING
     // ====================================================================
 
-    private String serializeArgs(Object[] args) {
-        try {
-            String json = mapper.writeValueAsString(args);
-            JsonNode root = mapper.readTree(json);
-            maskSensitiveFields(root);
-            return mapper.writeValueAsString(root);
-        } catch (Exception e) {
-            return Arrays.toString(args);
-        }
-    }
-
-    private void maskSensitiveFields(JsonNode node) {
-        if (node.isObject()) {
-            ObjectNode obj = (ObjectNode) node;
-            obj.fieldNames().forEachRemaining(field -> {
-                JsonNode child = obj.get(field);
-                if (isSensitiveKey(field)) {
-                    obj.put(field, MASK);
-                } else {
-                    maskSensitiveFields(child);
-                }
-            });
-        } else if (node.isArray()) {
-            for (JsonNode child : node) {
-                maskSensitiveFields(child);
-            }
-        }
-    }
-
-    private boolean isSensitiveKey(String key) {
-        return switch (key) {
-            case "password", "oldPassword", "newPassword",
-                 "accessToken", "refreshToken" -> true;
-            default -> {
-                String lower = key.toLowerCase();
-                yield lower.contains("password") || lower.contains("token");
-            }
-        };
+    /// ein Durchgang, sensible Felder schon beim Schreiben geschwärzt, auf die Payload-Spalte begrenzt
+    private String serializeArgs(ProceedingJoinPoint pjp, Audit audit) {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        return payloadSerializer.serialize(method, AuditMetadata.of(method, audit).parameterNames, pjp.getArgs());
     }
 
     // ====================================================================
     //                             HELPERS
     // ====================================================================
 
-    private String getClientIp() {
-        String forwarded = request.getHeader("X-Forwarded-For");
-        return forwarded != null ? forwarded : request.getRemoteAddr();
-    }
-
     private Benutzer safeGetUser() {
         try {
             return benutzerService.getCurrentUser();
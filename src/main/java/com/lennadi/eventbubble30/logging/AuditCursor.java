@@ -0,0 +1,36 @@
+package com.lennadi.eventbubble30.logging;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position für Keyset-Pagination im Audit-Log: (timestamp, id) des letzten Eintrags einer Seite.
+ * Für den Client ein undurchsichtiger base64url-String.
+ */
+public record AuditCursor(Instant timestamp, Long id) {
+
+    public static AuditCursor after(AuditLog last) {
+        return new AuditCursor(last.getTimestamp(), last.getId());
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException wenn der Token kaputt ist
+     */
+    public static AuditCursor decode(String token) {
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] p = raw.split("\\|");
+        if (p.length != 2) throw new IllegalArgumentException("malformed cursor");
+
+        try {
+            return new AuditCursor(Instant.parse(p[0]), Long.parseLong(p[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("malformed cursor", e);
+        }
+    }
+}
@@ -13,12 +13,25 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/// Indizes passend zu den Filtern von /api/admin/audit-log, jeweils mit timestamp dahinter für die Sortierung
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_audit_log_ts_id", columnList = "timestamp, id"),
+        @Index(name = "idx_audit_log_user_ts", columnList = "benutzer_id, timestamp"),
+        @Index(name = "idx_audit_log_action_ts", columnList = "action, success, timestamp"),
+        @Index(name = "idx_audit_log_resource_ts", columnList = "resource_type, resource_id, timestamp")
+})
 @Getter @Setter(AccessLevel.NONE)
 public class AuditLog {
+    public static final String ID_SEQUENCE = "audit_log_seq";
+    public static final int PAYLOAD_LENGTH = 8000;
+
+    /// Sequence statt IDENTITY, damit der AuditWriter gebündelt (JDBC-Batch) schreiben kann. Siehe IdSequenceAlignment.
+    /// Kein eigener unique-Constraint: unter postgresDB ist die Tabelle partitioniert, dort ist der PK (id, timestamp).
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @Column(unique = true, nullable = false, updatable = false)
+    @SequenceGenerator(name = AuditLog.ID_SEQUENCE, sequenceName = AuditLog.ID_SEQUENCE, allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = AuditLog.ID_SEQUENCE)
+    @Column(nullable = false, updatable = false)
     private Long id;
 
     //WHO
@@ -35,7 +48,8 @@ public class AuditLog {
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(
             name = "auditlog_role_snapshots",
-            joinColumns = @JoinColumn(name = "auditlog_id")
+            joinColumns = @JoinColumn(name = "auditlog_id"),
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT) // FK auf partitionierte Tabelle ginge nur mit (id, timestamp)
     )
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
@@ -46,7 +60,7 @@ public class AuditLog {
     @Column(nullable = false, updatable = false, length = 30)
     private Action action;
 
-    @Column(nullable = false, updatable = false, length = 8000)
+    @Column(nullable = false, updatable = false, length = PAYLOAD_LENGTH)
     private String payload;
 
     @Column(nullable = false, updatable = false)
@@ -96,12 +110,19 @@ public class AuditLog {
 
     }
 
+    /// gleicher Inhalt ohne Id, z.B. für einen neuen Versuch nach einem fehlgeschlagenen Batch
+    AuditLog copy() {
+        return new AuditLog(benutzer, ipAddress, usernameSnapshot, roleSnapshot, action, payload, success,
+                endpoint, timestamp, resourceType, resourceId);
+    }
+
     public enum Action {
         //CRUD
         CREATE, READ, UPDATE, DELETE,
         //User
         SIGNUP, LOGIN, REFRESH, INVALIDATE_TOKENS, MAIL_REQUEST,
-        OTHER, CLEANUP_UNVERIFIED_ACCOUNTS;
+        OTHER, CLEANUP_UNVERIFIED_ACCOUNTS, PURGE,
+        IMPORT;
 
         public static final Set<Action> CRUD = new HashSet<>(List.of(CREATE, READ, UPDATE, DELETE));
         public static final Set<Action> AUTH = new HashSet<>(List.of(SIGNUP, LOGIN, REFRESH, INVALIDATE_TOKENS, MAIL_REQUEST));
@@ -0,0 +1,240 @@
+package com.lennadi.eventbubble30.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Unter Postgres ist {@code audit_log} nach {@code timestamp} monatsweise partitioniert ({@code audit_log_pYYYY_MM}).
+ * <p>
+ * ddl-auto legt die Tabelle normal an; beim ersten Start wird sie einmalig umgebaut: die alte Tabelle bleibt als
+ * Partition {@code audit_log_legacy} (alles bis Anfang nächsten Monats) erhalten, dahinter kommen Monatspartitionen
+ * ({@code audit.partitions.ahead} Monate im Voraus) und eine Default-Partition als Auffangbecken.
+ * <p>
+ * {@link #archiveExpired} (CronJobs) exportiert Partitionen, die komplett älter als {@code audit.retention} sind, als
+ * gzip-NDJSON nach {@code audit.archive-dir} und hängt sie danach aus und löscht sie. Ein Export ohne Fehler ist
+ * Voraussetzung, vorher wird nichts gelöscht.
+ */
+@Slf4j
+@Component
+@Profile("postgresDB")
+public class AuditLogPartitions {
+
+    private static final String TABLE = "audit_log";
+    private static final String ROLES_TABLE = "auditlog_role_snapshots";
+    private static final String LEGACY = TABLE + "_legacy";
+    private static final String DEFAULT = TABLE + "_default";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ObjectMapper objectMapper;
+
+    private final int ahead;
+    private final Duration retention;
+    private final Path archiveDir;
+
+    /// emf nur als Abhängigkeit, damit ddl-auto vorher durch ist
+    public AuditLogPartitions(
+            JdbcTemplate jdbc,
+            TransactionTemplate tx,
+            ObjectMapper objectMapper,
+            EntityManagerFactory emf,
+            @Value("${audit.partitions.ahead:3}") int ahead,
+            @Value("${audit.retention:365d}") Duration retention,
+            @Value("${audit.archive-dir:./audit-archive}") Path archiveDir
+    ) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.objectMapper = objectMapper;
+        this.ahead = ahead;
+        this.retention = retention;
+        this.archiveDir = archiveDir;
+    }
+
+    /// vor dem Webserver-Start, also vor allen Inserts
+    @PostConstruct
+    public void init() {
+        String kind = jdbc.queryForObject(
+                "select c.relkind::text from pg_class c where c.oid = to_regclass(?)", String.class, TABLE
+        );
+        if ("r".equals(kind)) convert();
+        ensurePartitions();
+    }
+
+    /// legt die Monatspartitionen bis {@code ahead} Monate im Voraus an (idempotent)
+    public void ensurePartitions() {
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        Instant covered = legacyUpperBound();
+
+        for (int i = 0; i <= ahead; i++) {
+            YearMonth m = now.plusMonths(i);
+            if (covered != null && start(m).isBefore(covered)) continue; // steckt noch in legacy
+
+            String name = partitionName(m);
+            try {
+                jdbc.execute("create table if not exists " + name + " partition of " + TABLE
+                        + " for values from ('" + start(m) + "') to ('" + start(m.plusMonths(1)) + "')");
+            } catch (RuntimeException e) {
+                // z.B. passende Zeilen schon in der Default-Partition
+                log.error("Could not create audit partition {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    /// @return Anzahl archivierter Partitionen
+    public int archiveExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        int archived = 0;
+
+        for (Map<String, Object> p : jdbc.queryForList("""
+                select c.relname as name,
+                       (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz as upper_bound
+                from pg_inherits i
+                join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = to_regclass(?)
+                """, TABLE)) {
+            String name = (String) p.get("name");
+            Timestamp upper = (Timestamp) p.get("upper_bound");
+            if (upper == null || upper.toInstant().isAfter(cutoff)) continue; // Default-Partition oder noch jung
+
+            try {
+                archive(name);
+                archived++;
+            } catch (RuntimeException | IOException e) {
+                log.error("Archiving audit partition {} failed, kept in place: {}", name, e.getMessage(), e);
+            }
+        }
+        return archived;
+    }
+
+    /// //////////////////////////////////////////////////////////////////intern
+
+    private void convert() {
+        YearMonth next = YearMonth.now(ZoneOffset.UTC).plusMonths(1);
+
+        tx.executeWithoutResult(status -> {
+            // von ddl-auto angelegte Indizes (@Table) später auf dem Parent neu anlegen, sonst blockieren ihre Namen
+            List<Map<String, Object>> indexes = jdbc.queryForList(
+                    "select indexname, indexdef from pg_indexes where tablename = ? and indexname like 'idx\\_%'", TABLE
+            );
+            for (Map<String, Object> idx : indexes) jdbc.execute("drop index " + idx.get("indexname"));
+
+            jdbc.execute("alter table " + TABLE + " rename to " + LEGACY);
+
+            // FKs von auditlog_role_snapshots zeigen jetzt auf legacy und gingen auf dem Parent nur mit (id, timestamp)
+            for (String fk : jdbc.queryForList("""
+                    select conname from pg_constraint
+                    where conrelid = to_regclass(?) and confrelid = to_regclass(?) and contype = 'f'
+                    """, String.class, ROLES_TABLE, LEGACY)) {
+                jdbc.execute("alter table " + ROLES_TABLE + " drop constraint " + fk);
+            }
+
+            jdbc.execute("create table " + TABLE + " (like " + LEGACY + " including defaults including constraints)"
+                    + " partition by range (\"timestamp\")");
+            jdbc.execute("alter table " + TABLE + " add constraint " + TABLE + "_part_pkey primary key (id, \"timestamp\")");
+            jdbc.execute("alter table " + TABLE + " attach partition " + LEGACY
+                    + " for values from (minvalue) to ('" + start(next) + "')");
+            jdbc.execute("create table " + DEFAULT + " partition of " + TABLE + " default");
+
+            // auf dem Parent angelegt gelten sie für alle Partitionen
+            for (Map<String, Object> idx : indexes) jdbc.execute((String) idx.get("indexdef"));
+        });
+
+        log.info("{} converted to a monthly partitioned table, existing rows kept in {}", TABLE, LEGACY);
+    }
+
+    /// Obergrenze von audit_log_legacy, null wenn es sie (nicht mehr) gibt
+    private Instant legacyUpperBound() {
+        List<Timestamp> upper = jdbc.queryForList("""
+                select (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz
+                from pg_class c
+                where c.oid = to_regclass(?) and c.relispartition
+                """, Timestamp.class, LEGACY);
+        return upper.isEmpty() || upper.get(0) == null ? null : upper.get(0).toInstant();
+    }
+
+    /// erst vollständig exportieren, dann in einer Transaktion aushängen und löschen
+    private void archive(String partition) throws IOException {
+        Files.createDirectories(archiveDir);
+        Path target = archiveDir.resolve(partition + ".ndjson.gz");
+        Path tmp = archiveDir.resolve(partition + ".ndjson.gz.part");
+
+        long rows;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+            rows = export(partition, out);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        tx.executeWithoutResult(status -> {
+            jdbc.execute("alter table " + TABLE + " detach partition " + partition);
+            jdbc.update("delete from " + ROLES_TABLE + " where auditlog_id in (select id from " + partition + ")");
+            jdbc.execute("drop table " + partition);
+        });
+
+        log.info("Archived audit partition {} ({} rows) to {}", partition, rows, target);
+    }
+
+    /// eine JSON-Zeile pro Eintrag, Rollen als Liste; im Cursor (Transaktion + fetchSize), nicht alles im Speicher
+    private long export(String partition, Writer out) {
+        long[] rows = {0};
+        tx.executeWithoutResult(status -> jdbc.query(con -> {
+            var ps = con.prepareStatement("select a.*, array(select r.role_snapshot from " + ROLES_TABLE
+                    + " r where r.auditlog_id = a.id) as roles from " + partition + " a order by a.id");
+            ps.setFetchSize(1000);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                Object v = rs.getObject(i);
+                if (v instanceof Timestamp t) v = t.toInstant().toString();
+                else if (v instanceof java.sql.Array a) v = a.getArray();
+                row.put(meta.getColumnLabel(i), v);
+            }
+            try {
+                out.write(objectMapper.writeValueAsString(row));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        }));
+        return rows[0];
+    }
+
+    private static String partitionName(YearMonth m) {
+        return String.format("%s_p%04d_%02d", TABLE, m.getYear(), m.getMonthValue());
+    }
+
+    private static Instant start(YearMonth m) {
+        return m.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+    }
+}
@@ -2,11 +2,18 @@ package com.lennadi.eventbubble30.logging;
 
 import com.lennadi.eventbubble30.features.db.EntityType;
 import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Subquery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long>,
@@ -17,4 +24,70 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long>,
     Page<AuditLog> findByActionNotIn(Set<AuditLog.Action> excluded, Pageable pageable);
     Page<AuditLog> findByBenutzer(Benutzer benutzer, Pageable pageable);
     Page<AuditLog> findByResourceTypeAndResourceId(EntityType resourceType, String resourceId, Pageable pageable);
+
+    /// neueste zuerst, id als Tiebreaker (passt zu idx_audit_log_ts_id und zum {@link AuditCursor})
+    Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "timestamp").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    public class Specs {
+
+        /// alle gesetzten Filter verundet, null-Parameter werden ignoriert
+        public static Specification<AuditLog> filter(
+                String userId, List<AuditLog.Action> actions, EntityType resourceType, String resourceId,
+                Boolean success, Instant from, Instant to
+        ) {
+            List<Specification<AuditLog>> filters = new ArrayList<>();
+
+            if (userId != null) filters.add(user(userId.trim()));
+
+            if (actions != null && !actions.isEmpty()) {
+                filters.add((root, q, cb) -> root.get("action").in(actions));
+            }
+
+            if (resourceType != null) {
+                filters.add((root, q, cb) -> cb.equal(root.get("resourceType"), resourceType));
+            }
+
+            if (resourceId != null) {
+                filters.add((root, q, cb) -> cb.equal(root.get("resourceId"), resourceId));
+            }
+
+            if (success != null) {
+                filters.add((root, q, cb) -> cb.equal(root.get("success"), success));
+            }
+
+            if (from != null) {
+                filters.add((root, q, cb) -> cb.greaterThanOrEqualTo(root.get("timestamp"), from));
+            }
+
+            if (to != null) {
+                filters.add((root, q, cb) -> cb.lessThanOrEqualTo(root.get("timestamp"), to));
+            }
+
+            return filters.isEmpty() ? Specification.allOf() : Specification.allOf(filters);
+        }
+
+        /// über benutzer_id statt Join auf benutzer, damit idx_audit_log_user_ts greift
+        public static Specification<AuditLog> user(String externalId) {
+            return (root, query, cb) -> {
+                Subquery<Long> sub = query.subquery(Long.class);
+                var b = sub.from(Benutzer.class);
+                sub.select(b.get("id")).where(cb.equal(b.get("externalId"), externalId));
+                return cb.equal(root.get("benutzer").get("id"), sub);
+            };
+        }
+
+        /// Einträge nach dem Cursor in {@link #NEWEST_FIRST}-Reihenfolge
+        public static Specification<AuditLog> seek(AuditCursor after) {
+            return (root, query, cb) -> {
+                if (after == null) return null;
+
+                Path<Instant> ts = root.get("timestamp");
+                Path<Long> id = root.get("id");
+                return cb.or(
+                        cb.lessThan(ts, after.timestamp()),
+                        cb.and(cb.equal(ts, after.timestamp()), cb.lessThan(id, after.id()))
+                );
+            };
+        }
+    }
 }
@@ -1,112 +1,259 @@
 package com.lennadi.eventbubble30.logging;
 
+import com.lennadi.eventbubble30.exceptions.ErrorCodes;
+import com.lennadi.eventbubble30.features.IDTO;
 import com.lennadi.eventbubble30.features.db.EntityType;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
 import com.lennadi.eventbubble30.features.service.DtoService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import reactor.core.Disposable;
-import reactor.core.publisher.Sinks;
-import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
+/**
+ * Live-Stream des Audit-Logs per SSE. Jeder Abonnent hat einen eigenen begrenzten Puffer
+ * ({@code audit.stream.buffer}) und einen eigenen Sende-Thread: ein langsamer Client bremst nur sich selbst, läuft sein
+ * Puffer über, werden seine Einträge verworfen und gezählt (pro Abonnent in {@link #subscribers}, gesamt in
+ * {@code audit.stream.dropped}) und der Client bekommt ein {@code dropped}-Event.
+ * <p>
+ * Ist {@code audit.stream.heartbeat} lang nichts gekommen, geht ein Kommentar raus, damit Proxies (Cloudflare: 100s)
+ * die Verbindung nicht zumachen. Die letzten {@code audit.stream.replay-size} Einträge liegen in einem Ringpuffer,
+ * nach einem Reconnect mit {@code Last-Event-ID} wird daraus nachgeliefert; reicht er nicht zurück, kommt vorher ein
+ * {@code gap}-Event (Rest per {@code /api/admin/audit-log?cursor=} holen).
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AuditLogStreamerService {
+
+    private static final String EVENT_NAME = "audit-log";
+
     private final DtoService dtoService;
 
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Duration heartbeat;
+
+    /// schon fertig als DTO, damit nicht jeder Abonnent (und jeder Replay) neu umwandelt
+    private record Item(
+            long id, String userId, AuditLog.Action action, EntityType resourceType, String resourceId,
+            boolean success, IDTO dto
+    ) {}
+
     /**
-     * Best-effort multicast:
-     * - no unbounded buffering
-     * - slow clients drop events instead of OOM
+     * @param queued gerade im Puffer
      */
-    private final Sinks.Many<AuditLog> sink =
-            Sinks.many().multicast().directBestEffort();
+    public record SubscriberInfo(long id, Instant since, int queued, long delivered, long dropped) {}
+
+    private final RecentAuditEvents<Item> recent;
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong nextSubscriberId = new AtomicLong();
+
+    private final Counter published, dropped;
 
+    public AuditLogStreamerService(
+            DtoService dtoService,
+            MeterRegistry registry,
+            @Value("${audit.stream.buffer:256}") int bufferSize,
+            @Value("${audit.stream.max-subscribers:20}") int maxSubscribers,
+            @Value("${audit.stream.heartbeat:30s}") Duration heartbeat,
+            @Value("${audit.stream.replay-size:1000}") int replaySize
+    ) {
+        this.dtoService = dtoService;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeat = heartbeat;
+        this.recent = new RecentAuditEvents<>(replaySize);
+
+        this.published = registry.counter("audit.stream.published");
+        this.dropped = registry.counter("audit.stream.dropped");
+        registry.gauge("audit.stream.subscribers", subscribers, Map::size);
+    }
+
+    /// vom AuditWriter-Thread nach dem Commit; blockiert nie auf Clients
     public void publish(AuditLog entry) {
-        sink.emitNext(entry, (signalType, emitResult) -> {
-            if (emitResult.isFailure()) {
-                log.warn("SSE emit failed: {}", emitResult);
-            }
-            return false;
-        });
+        Benutzer b = entry.getBenutzer();
+        Item item = new Item(
+                entry.getId(), b != null ? b.getExternalId() : null, entry.getAction(), entry.getResourceType(),
+                entry.getResourceId(), entry.isSuccess(), dtoService.get(entry)
+        );
+
+        // unter demselben Lock wie subscribe, damit zwischen Replay und Live nichts fehlt oder doppelt kommt
+        synchronized (recent) {
+            recent.append(item.id(), item);
+            for (Subscriber s : subscribers.values()) s.offer(item);
+        }
+        published.increment();
     }
 
+    /**
+     * @param lastEventId Header {@code Last-Event-ID} bei Reconnect, sonst null
+     * @throws ResponseStatusException 429, wenn schon {@code audit.stream.max-subscribers} verbunden sind
+     */
     public void registerListener(
             SseEmitter emitter,
+            String lastEventId,
             String userId,
             List<AuditLog.Action> actions,
             EntityType resourceType,
             String resourceId,
             Boolean success
     ) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, ErrorCodes.TOO_BUSY.toString());
+        }
+
+        Predicate<Item> filter = item -> (userId == null || userId.equals(item.userId()))
+                && (actions == null || actions.isEmpty() || actions.contains(item.action()))
+                && (resourceType == null || resourceType == item.resourceType())
+                && (resourceId == null || resourceId.equals(item.resourceId()))
+                && (success == null || success == item.success());
 
-        Predicate<AuditLog> filter = log -> {
-
-            if (userId != null &&
-                    (log.getBenutzer() == null ||
-                            !userId.equals(log.getBenutzer().getExternalId())))
-                return false;
-
-            if (actions != null && !actions.isEmpty() &&
-                    !actions.contains(log.getAction()))
-                return false;
-
-            if (resourceType != null &&
-                    !resourceType.equals(log.getResourceType()))
-                return false;
-
-            if (resourceId != null &&
-                    !resourceId.equals(log.getResourceId()))
-                return false;
-
-            if (success != null &&
-                    !success.equals(log.isSuccess()))
-                return false;
-
-            return true;
-        };
-
-        final Disposable[] subscriptionRef = new Disposable[1];
-
-        subscriptionRef[0] = sink.asFlux()
-                .filter(filter)
-                .publishOn(Schedulers.single())
-                .subscribe(
-                        logEntry -> {
-                            try {
-                                emitter.send(
-                                        SseEmitter.event()
-                                                .name("audit-log")
-                                                .data(dtoService.get(logEntry))
-                                );
-                            } catch (Exception e) {
-                                log.debug("SSE client disconnected", e);
-                                subscriptionRef[0].dispose();
-                                emitter.completeWithError(e);
-                            }
-                        },
-                        error -> {
-                            log.warn("SSE stream error", error);
-                            subscriptionRef[0].dispose();
-                            emitter.completeWithError(error);
-                        },
-                        () -> {
-                            subscriptionRef[0].dispose();
-                            emitter.complete();
-                        }
-                );
-
-
-        emitter.onCompletion(() -> subscriptionRef[0].dispose());
+        Long after = parseLastEventId(lastEventId);
+        Subscriber s = new Subscriber(nextSubscriberId.incrementAndGet(), emitter, filter);
+
+        RecentAuditEvents.Replay<Item> replay = null;
+        synchronized (recent) {
+            if (after != null) replay = recent.after(after);
+            subscribers.put(s.id, s);
+        }
+
+        emitter.onCompletion(s::close);
         emitter.onTimeout(() -> {
-            subscriptionRef[0].dispose();
+            s.close();
             emitter.complete();
         });
-        emitter.onError(e -> subscriptionRef[0].dispose());
+        emitter.onError(e -> s.close());
+
+        s.start(replay);
+    }
+
+    public List<SubscriberInfo> subscribers() {
+        return subscribers.values().stream()
+                .map(s -> new SubscriberInfo(s.id, s.since, s.queue.size(), s.delivered.get(), s.dropped.get()))
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber s : subscribers.values()) {
+            s.close();
+            s.emitter.complete();
+        }
+    }
+
+    /// //////////////////////////////////////////////////////////////////intern
+
+    private static Long parseLastEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) return null;
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return null; // fremde Id, dann eben ohne Replay
+        }
+    }
+
+    private final class Subscriber {
+        final long id;
+        final Instant since = Instant.now();
+        final SseEmitter emitter;
+        final Predicate<Item> filter;
+        final BlockingQueue<Item> queue = new ArrayBlockingQueue<>(bufferSize);
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+
+        private volatile boolean closed;
+        private Thread thread;
+
+        /// seit dem letzten dropped-Event verworfen
+        private long reportedDropped;
+
+        Subscriber(long id, SseEmitter emitter, Predicate<Item> filter) {
+            this.id = id;
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        /// unter dem recent-Lock, darf nicht blockieren
+        void offer(Item item) {
+            if (closed || !filter.test(item)) return;
+            if (!queue.offer(item)) {
+                dropped.incrementAndGet();
+                AuditLogStreamerService.this.dropped.increment();
+            }
+        }
+
+        void start(RecentAuditEvents.Replay<Item> replay) {
+            thread = new Thread(() -> run(replay), "audit-sse-" + id);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            subscribers.remove(id);
+            if (thread != null && thread != Thread.currentThread()) thread.interrupt();
+        }
+
+        private void run(RecentAuditEvents.Replay<Item> replay) {
+            try {
+                emitter.send(SseEmitter.event().comment("connected"));
+
+                if (replay != null) {
+                    if (!replay.complete()) emitter.send(SseEmitter.event().name("gap").data(""));
+                    for (Item item : replay.items()) {
+                        if (filter.test(item)) send(item);
+                    }
+                }
+
+                while (!closed) {
+                    Item item = queue.poll(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+                    if (item == null) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                        continue;
+                    }
+                    reportDropped();
+                    send(item);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.debug("SSE client {} disconnected: {}", id, e.getMessage());
+                close();
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void send(Item item) throws Exception {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(item.id()))
+                    .name(EVENT_NAME)
+                    .data(item.dto()));
+            delivered.incrementAndGet();
+        }
+
+        /// sagt dem Client, dass ihm seit dem letzten Mal Einträge fehlen
+        private void reportDropped() throws Exception {
+            long d = dropped.get();
+            if (d == reportedDropped) return;
+            emitter.send(SseEmitter.event().name("dropped").data(d - reportedDropped));
+            reportedDropped = d;
+        }
     }
 }
@@ -0,0 +1,111 @@
+package com.lennadi.eventbubble30.logging;
+
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Alles, was der {@link AuditAspect} pro annotierter Methode bzw. pro Ergebnisklasse braucht, einmal beim ersten Aufruf
+ * aufgelöst: geparster (und im MIXED-Modus kompilierter) SpEL-Ausdruck, Parameternamen, Index von
+ * {@code resourceIdParam} und Id-Getter als MethodHandles. Klassen ohne passendes Feld werden ebenfalls gemerkt.
+ */
+@Slf4j
+final class AuditMetadata {
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, AuditMetadata.class.getClassLoader())
+    );
+    private static final ParameterNameDiscoverer PARAMETER_NAMES = new DefaultParameterNameDiscoverer();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final Map<Method, AuditMetadata> BY_METHOD = new ConcurrentHashMap<>();
+
+    /// Felder {@code external_id} bzw. {@code id} (nur direkt in der Klasse deklariert, wie bisher), leer = keins
+    private static final ClassValue<List<MethodHandle>> ID_GETTERS = new ClassValue<>() {
+        @Override
+        protected List<MethodHandle> computeValue(Class<?> type) {
+            List<MethodHandle> ret = new ArrayList<>(2);
+            for (String name : new String[]{"external_id", "id"}) {
+                try {
+                    Field f = type.getDeclaredField(name);
+                    f.setAccessible(true);
+                    ret.add(MethodHandles.lookup().unreflectGetter(f).asType(GETTER_TYPE));
+                } catch (ReflectiveOperationException | RuntimeException ignore) {
+                    // kein Feld oder nicht zugreifbar (Module)
+                }
+            }
+            return List.copyOf(ret);
+        }
+    };
+
+    /// null wenn kein Ausdruck angegeben oder er sich nicht parsen lässt
+    final Expression resourceIdExpression;
+    final String[] parameterNames;
+    /// -1 wenn kein bzw. unbekannter resourceIdParam
+    final int resourceIdParamIndex;
+
+    private AuditMetadata(Method method, Audit audit) {
+        String[] names = PARAMETER_NAMES.getParameterNames(method);
+        this.parameterNames = names != null ? names : new String[0];
+
+        int idx = -1;
+        String param = audit.resourceIdParam();
+        if (param != null && !param.isBlank()) {
+            for (int i = 0; i < parameterNames.length; i++) {
+                if (parameterNames[i].equals(param)) {
+                    idx = i;
+                    break;
+                }
+            }
+        }
+        this.resourceIdParamIndex = idx;
+
+        Expression expr = null;
+        String source = audit.resourceIdExpression();
+        if (source != null && !source.isBlank()) {
+            try {
+                expr = PARSER.parseExpression(source);
+            } catch (RuntimeException e) {
+                log.warn("Invalid resourceIdExpression '{}' on {}: {}", source, method, e.getMessage());
+            }
+        }
+        this.resourceIdExpression = expr;
+    }
+
+    static AuditMetadata of(Method method, Audit audit) {
+        return BY_METHOD.computeIfAbsent(method, m -> new AuditMetadata(m, audit));
+    }
+
+    /// wie früher per getDeclaredField, aber mit gecachten Gettern
+    static String extractId(Object obj) {
+        if (obj == null) return null;
+
+        if (obj instanceof Benutzer b) return b.getExternalId();
+        if (obj instanceof Benutzer.DTO dto) return dto.id();
+
+        for (MethodHandle getter : ID_GETTERS.get(obj.getClass())) {
+            try {
+                if ((Object) getter.invokeExact(obj) instanceof String s) return s;
+            } catch (Throwable ignore) {
+                // nächstes Feld
+            }
+        }
+        return null;
+    }
+}
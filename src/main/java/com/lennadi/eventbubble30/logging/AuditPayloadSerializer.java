@@ -0,0 +1,190 @@
+package com.lennadi.eventbubble30.logging;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.type.MapType;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serialisiert die Argumente eines auditierten Aufrufs in einem Durchgang als JSON-Array und schwärzt dabei sensible
+ * Felder (Passwörter, Tokens), statt erst zu serialisieren, wieder einzulesen, den Baum zu maskieren und nochmal zu
+ * schreiben.
+ * <ul>
+ *     <li>Bean-/Record-Properties: welche sensibel sind, wird pro Klasse einmal beim Bauen des Jackson-Serializers
+ *     entschieden (der wird gecacht), der Getter eines sensiblen Feldes wird gar nicht erst aufgerufen.</li>
+ *     <li>Map-Keys: pro Eintrag (Keys können beliebig sein, ein Cache wäre unbegrenzt).</li>
+ *     <li>Parameter selbst (z.B. {@code @RequestParam String token}): pro Methode einmal anhand der Parameternamen.</li>
+ * </ul>
+ * Die Ausgabe wird schon beim Schreiben auf {@code limit} Zeichen begrenzt, danach bricht die Serialisierung ab.
+ */
+final class AuditPayloadSerializer {
+
+    static final String MASK = "***REDACTED***";
+    private static final String TRUNCATED = "...(truncated)";
+
+    /// Argumenttypen, die nicht (sinnvoll) serialisierbar sind, nur als Typname
+    private static final List<Class<?>> OPAQUE = List.of(
+            ServletRequest.class, ServletResponse.class, WebRequest.class, MultipartFile.class, InputStream.class
+    );
+
+    private final int limit;
+    private final ObjectMapper mapper;
+
+    private final Map<Method, boolean[]> sensitiveParams = new ConcurrentHashMap<>();
+
+    AuditPayloadSerializer(int limit) {
+        this.limit = limit;
+
+        SimpleModule redaction = new SimpleModule("audit-redaction");
+        redaction.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                             List<BeanPropertyWriter> props) {
+                props.replaceAll(p -> isSensitive(p.getName()) ? new Masked(p) : p);
+                return props;
+            }
+
+            @Override
+            public JsonSerializer<?> modifyMapSerializer(SerializationConfig config, MapType valueType,
+                                                         BeanDescription beanDesc, JsonSerializer<?> serializer) {
+                return new RedactingMapSerializer();
+            }
+        });
+
+        this.mapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .registerModule(redaction)
+                .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+    }
+
+    String serialize(Method method, String[] paramNames, Object[] args) {
+        boolean[] sensitive = paramNames == null ? null
+                : sensitiveParams.computeIfAbsent(method, m -> {
+                    boolean[] ret = new boolean[paramNames.length];
+                    for (int i = 0; i < paramNames.length; i++) ret[i] = isSensitive(paramNames[i]);
+                    return ret;
+                });
+
+        BoundedWriter out = new BoundedWriter(limit - TRUNCATED.length());
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+            gen.writeStartArray();
+            for (int i = 0; i < args.length; i++) {
+                Object arg = args[i];
+                if (sensitive != null && i < sensitive.length && sensitive[i]) {
+                    gen.writeString(MASK);
+                } else if (arg != null && OPAQUE.stream().anyMatch(c -> c.isInstance(arg))) {
+                    gen.writeString("<" + arg.getClass().getSimpleName() + ">");
+                } else {
+                    mapper.writeValue(gen, arg);
+                }
+            }
+            gen.writeEndArray();
+        } catch (IOException e) {
+            if (out.exceeded) return out.text() + TRUNCATED;
+            return unserializable(args);
+        } catch (RuntimeException e) {
+            return unserializable(args);
+        }
+        return out.text();
+    }
+
+    /// nur die Typen, Inhalte könnten ungeschwärzte Geheimnisse enthalten
+    private static String unserializable(Object[] args) {
+        StringBuilder sb = new StringBuilder("[unserializable:");
+        for (Object a : args) sb.append(' ').append(a == null ? "null" : a.getClass().getSimpleName());
+        return sb.append(']').toString();
+    }
+
+    static boolean isSensitive(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.contains("password") || lower.contains("token");
+    }
+
+    /// //////////////////////////////////////////////////////////////////intern
+
+    /// schreibt nur Name + MASK, ohne den Wert zu lesen
+    private static final class Masked extends BeanPropertyWriter {
+        Masked(BeanPropertyWriter base) {
+            super(base);
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            gen.writeStringField(getName(), MASK);
+        }
+
+        @Override
+        public void serializeAsElement(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            gen.writeString(MASK);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final class RedactingMapSerializer extends StdSerializer<Map> {
+        RedactingMapSerializer() {
+            super(Map.class);
+        }
+
+        @Override
+        public void serialize(Map value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                String key = String.valueOf(e.getKey());
+                if (isSensitive(key)) {
+                    gen.writeStringField(key, MASK);
+                } else {
+                    provider.defaultSerializeField(key, e.getValue(), gen);
+                }
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    /// bricht ab, sobald mehr als max Zeichen geschrieben würden
+    private static final class BoundedWriter extends Writer {
+        private final StringBuilder sb = new StringBuilder();
+        private final int max;
+        boolean exceeded;
+
+        BoundedWriter(int max) {
+            this.max = max;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int room = max - sb.length();
+            if (len > room) {
+                sb.append(cbuf, off, Math.max(0, room));
+                exceeded = true;
+                throw new IOException("audit payload limit reached");
+            }
+            sb.append(cbuf, off, len);
+        }
+
+        String text() {
+            return sb.toString();
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
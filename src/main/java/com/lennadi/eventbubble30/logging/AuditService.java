@@ -3,11 +3,7 @@ package com.lennadi.eventbubble30.logging;
 import com.lennadi.eventbubble30.features.db.EntityType;
 import com.lennadi.eventbubble30.features.db.entities.Benutzer;
 import lombok.RequiredArgsConstructor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.Set;
@@ -15,12 +11,9 @@ import java.util.Set;
 @Service
 @RequiredArgsConstructor
 public class AuditService {
-    private final AuditLogRepository auditRepository;
-    private final AuditLogStreamerService auditLogStreamerService;
-    private static final Logger LOGGER =
-            LoggerFactory.getLogger(AuditService.class);
+    private final AuditWriter auditWriter;
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    /// legt den Eintrag nur in die Queue, geschrieben und gestreamt wird im Hintergrund ({@link AuditWriter})
     public void log(
             Benutzer benutzer,
             String ip,
@@ -47,13 +40,7 @@ public class AuditService {
                 resourceId
         );
 
-        auditRepository.save(log);
-
-        try {
-            auditLogStreamerService.publish(log);
-        } catch (Exception e) {
-            LOGGER.warn("Audit stream failed (ignored): {}", e.getMessage());
-        }
+        auditWriter.enqueue(log);
     }
 
     public void logSystemAction(
@@ -0,0 +1,194 @@
+package com.lennadi.eventbubble30.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Schreibt Audit-Einträge im Hintergrund statt im Request: {@link #enqueue} legt sie nur in eine begrenzte,
+ * lock-freie Queue, ein eigener Thread schreibt sie in Batches von {@code audit.writer.batch-size} (bzw. spätestens
+ * alle {@code audit.writer.flush-interval}) in einer Transaktion, danach gehen sie an den SSE-Stream.
+ * <p>
+ * Ist die Queue voll ({@code audit.writer.capacity}), wartet der Aufrufer bis zu {@code audit.writer.offer-timeout}
+ * (0 = gar nicht), danach wird der Eintrag verworfen, ins Log geschrieben und gezählt ({@code audit.writer.dropped}).
+ * Beim Herunterfahren wird alles noch Offene geschrieben.
+ */
+@Slf4j
+@Component
+public class AuditWriter {
+
+    private final TransactionTemplate transactionTemplate;
+    private final AuditLogStreamerService streamer;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+
+    private final Queue<AuditLog> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final Counter written, dropped, failed;
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public AuditWriter(
+            TransactionTemplate transactionTemplate,
+            AuditLogStreamerService streamer,
+            MeterRegistry registry,
+            @Value("${audit.writer.capacity:10000}") int capacity,
+            @Value("${audit.writer.batch-size:100}") int batchSize,
+            @Value("${audit.writer.flush-interval:500ms}") Duration flushInterval,
+            @Value("${audit.writer.offer-timeout:100ms}") Duration offerTimeout
+    ) {
+        this.transactionTemplate = transactionTemplate;
+        this.streamer = streamer;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+
+        this.written = registry.counter("audit.writer.written");
+        this.dropped = registry.counter("audit.writer.dropped");
+        this.failed = registry.counter("audit.writer.failed");
+        registry.gauge("audit.writer.queue", size);
+    }
+
+    @PostConstruct
+    public void start() {
+        thread = new Thread(this::run, "audit-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /// @return false wenn der Eintrag wegen voller Queue verworfen wurde
+    public boolean enqueue(AuditLog entry) {
+        long deadline = System.nanoTime() + offerTimeout.toNanos();
+        while (!tryReserve()) {
+            if (System.nanoTime() >= deadline) {
+                dropped.increment();
+                log.error("Audit queue full, dropped: {} {} {} by {} ({})", entry.getAction(), entry.getResourceType(),
+                        entry.getResourceId(), entry.getUsernameSnapshot(), entry.getEndpoint());
+                return false;
+            }
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        queue.add(entry);
+        if (size.get() >= batchSize) LockSupport.unpark(thread);
+        return true;
+    }
+
+    private boolean tryReserve() {
+        int s;
+        do {
+            s = size.get();
+            if (s >= capacity) return false;
+        } while (!size.compareAndSet(s, s + 1));
+        return true;
+    }
+
+    /// schreibt alles, was gerade in der Queue liegt (Shutdown, Tests)
+    public synchronized void flush() {
+        List<AuditLog> batch;
+        while (!(batch = drain()).isEmpty()) write(batch);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(flushInterval.toMillis() * 4);
+        flush();
+    }
+
+    /// //////////////////////////////////////////////////////////////////intern
+
+    private void run() {
+        while (running) {
+            if (size.get() < batchSize) LockSupport.parkNanos(flushInterval.toNanos());
+            try {
+                flushOnce();
+            } catch (RuntimeException e) {
+                log.error("Audit writer loop failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private synchronized void flushOnce() {
+        List<AuditLog> batch = drain();
+        if (!batch.isEmpty()) write(batch);
+    }
+
+    private List<AuditLog> drain() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        AuditLog e;
+        while (batch.size() < batchSize && (e = queue.poll()) != null) {
+            size.decrementAndGet();
+            batch.add(e);
+        }
+        return batch;
+    }
+
+    private void write(List<AuditLog> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (AuditLog e : batch) em.persist(e);
+                em.flush();
+                em.clear();
+            });
+            written.increment(batch.size());
+            batch.forEach(this::publish);
+        } catch (RuntimeException ex) {
+            // einzeln nochmal, damit ein kaputter Eintrag nicht den ganzen Batch mitnimmt
+            log.warn("Audit batch of {} failed, retrying one by one: {}", batch.size(), ex.getMessage());
+            for (AuditLog e : batch) writeSingle(e);
+        }
+    }
+
+    private void writeSingle(AuditLog failedInBatch) {
+        AuditLog e = failedInBatch.copy(); // hat aus dem Batch schon eine Id, wäre für persist "detached"
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                em.persist(e);
+                em.flush();
+                em.clear();
+            });
+            written.increment();
+            publish(e);
+        } catch (RuntimeException ex) {
+            failed.increment();
+            log.error("Audit log DB insert failed: {} {} {} by {}: {}", e.getAction(), e.getResourceType(),
+                    e.getResourceId(), e.getUsernameSnapshot(), ex.getMessage());
+        }
+    }
+
+    private void publish(AuditLog e) {
+        try {
+            streamer.publish(e);
+        } catch (Exception ex) {
+            log.warn("Audit stream failed (ignored): {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.lennadi.eventbubble30.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ringpuffer der letzten {@code capacity} gestreamten Audit-Einträge, damit ein SSE-Client nach einem Reconnect ab
+ * {@code Last-Event-ID} weitermachen kann, ohne die DB zu fragen. Die Einträge kommen in Id-Reihenfolge an (ein
+ * AuditWriter-Thread, Ids aus einer Sequence), gesucht wird per Binärsuche. Nicht threadsicher, der
+ * {@link AuditLogStreamerService} synchronisiert.
+ */
+final class RecentAuditEvents<T> {
+
+    /**
+     * @param complete false, wenn zwischen {@code lastId} und dem ältesten gepufferten Eintrag etwas fehlen kann
+     */
+    record Replay<T>(List<T> items, boolean complete) {}
+
+    private final long[] ids;
+    private final Object[] items;
+    private int head; // nächster Schreibplatz
+    private int size;
+
+    RecentAuditEvents(int capacity) {
+        this.ids = new long[capacity];
+        this.items = new Object[capacity];
+    }
+
+    void append(long id, T item) {
+        if (ids.length == 0) return;
+        ids[head] = id;
+        items[head] = item;
+        head = (head + 1) % ids.length;
+        if (size < ids.length) size++;
+    }
+
+    /// alles mit Id größer lastId, älteste zuerst
+    @SuppressWarnings("unchecked")
+    Replay<T> after(long lastId) {
+        if (size == 0) return new Replay<>(List.of(), true);
+
+        int lo = 0, hi = size; // erster logischer Index mit id > lastId
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ids[slot(mid)] <= lastId) lo = mid + 1;
+            else hi = mid;
+        }
+
+        List<T> ret = new ArrayList<>(size - lo);
+        for (int i = lo; i < size; i++) ret.add((T) items[slot(i)]);
+
+        // der älteste gepufferte ist neuer als lastId und davor wurde schon etwas überschrieben
+        boolean complete = lo > 0 || size < ids.length || ids[slot(0)] == lastId + 1;
+        return new Replay<>(ret, complete);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /// logischer Index (0 = ältester) -> Array-Index
+    private int slot(int i) {
+        return (head - size + i + ids.length) % ids.length;
+    }
+}
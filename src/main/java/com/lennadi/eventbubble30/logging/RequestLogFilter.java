@@ -3,6 +3,7 @@ package com.lennadi.eventbubble30.logging;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lennadi.eventbubble30.features.service.TelegramNotifier;
+import com.lennadi.eventbubble30.filter.ClientIp;
 import jakarta.annotation.PreDestroy;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -325,17 +326,7 @@ public class RequestLogFilter extends OncePerRequestFilter {
     }
 
     private String extractClientIp(HttpServletRequest request) {
-        String xff = request.getHeader("X-Forwarded-For");
-        if (xff != null && !xff.isBlank()) {
-            String[] parts = xff.split(",");
-            for (int i = parts.length - 1; i >= 0; i--) {
-                String candidate = parts[i].trim();
-                if (!candidate.isBlank()) {
-                    return candidate;
-                }
-            }
-        }
-        return request.getRemoteAddr();
+        return ClientIp.of(request);
     }
 
     private boolean isLocalOrPrivateIp(String ip) {
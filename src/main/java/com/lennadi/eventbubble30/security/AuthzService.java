@@ -1,12 +1,8 @@
 package com.lennadi.eventbubble30.security;
 
-import com.lennadi.eventbubble30.features.db.entities.Benutzer;
-import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
-import com.lennadi.eventbubble30.features.db.entities.tickets.Ticket;
+import com.lennadi.eventbubble30.features.db.ExternalIds;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
 import com.lennadi.eventbubble30.features.db.repository.tickets.TicketRepository;
-import com.lennadi.eventbubble30.features.service.BenutzerService;
-import com.lennadi.eventbubble30.features.service.TicketService;
-import com.lennadi.eventbubble30.features.service.VeranstaltungService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
@@ -16,24 +12,21 @@ import org.springframework.stereotype.Service;
 @Service("authz")
 @RequiredArgsConstructor
 public class AuthzService {
-    private final VeranstaltungService veranstaltungService;
-    private final BenutzerService benutzerService;
+    private final VeranstaltungsRepository veranstaltungRepository;
     private final TicketRepository ticketRepository;
 
     public boolean isEventOwner(String eventExtId) {
-        Benutzer current = benutzerService.getCurrentUserOrNull();
-        if (current == null) {
-            throw new AccessDeniedException("Not authenticated");
-        }
+        Long current = currentUserId();
 
-        Veranstaltung v = veranstaltungService.getVeranstaltungById(eventExtId);
-        if (v == null) {
+        Long owner = RequestMemo.get("authz:event:" + eventExtId + ":" + current,
+                () -> veranstaltungRepository.findOwnerId(eventExtId).orElse(null));
+        if (owner == null) {
             throw new AccessDeniedException("Event " + eventExtId + " does not exist");
         }
 
-        if (!v.getBesitzer().equals(current)) {
+        if (!owner.equals(current)) {
             throw new AccessDeniedException(
-                    "User " + current.getId() + " is not the owner of event " + eventExtId
+                    "User " + current + " is not the owner of event " + eventExtId
             );
         }
 
@@ -41,44 +34,38 @@ public class AuthzService {
     }
 
     public boolean isTicketAuthor(String ticketExtId) {
-        Benutzer current = benutzerService.getCurrentUserOrNull();
-        if(current == null) {
-            throw new AccessDeniedException("Not authenticated");
-        }
+        Long current = currentUserId();
 
-        Ticket t = ticketRepository.findByExternalIdIgnoreCase(ticketExtId).orElse(null);
-        if(t==null) {
+        Long author = RequestMemo.get("authz:ticket:" + ticketExtId + ":" + current,
+                () -> ticketRepository.findAuthorId(ticketExtId).orElse(null));
+        if(author==null) {
             throw new AccessDeniedException("Ticket " + ticketExtId + " does not exist");
         }
 
-        if(!t.getCreatedBy().getId().equals(current.getId())) {
-            throw new AccessDeniedException("User " + current.getId() + " is not the owner of ticket " + ticketExtId);
+        if(!author.equals(current)) {
+            throw new AccessDeniedException("User " + current + " is not the owner of ticket " + ticketExtId);
         }
 
         return true;
     }
 
     public boolean isSelf(Long userId) {
-        var current = benutzerService.getCurrentUserOrNull();
-        if (current == null)
-            throw new AccessDeniedException("Not authenticated");
+        Long current = currentUserId();
 
-        if (!current.getId().equals(userId))
+        if (!current.equals(userId))
             throw new AccessDeniedException(
-                    "User " + current.getId() + " cannot access resource of user " + userId
+                    "User " + current + " cannot access resource of user " + userId
             );
 
         return true;
     }
 
     public boolean isSelf(String extUserId) {
-        var current = benutzerService.getCurrentUserOrNull();
-        if (current == null)
-            throw new AccessDeniedException("Not authenticated");
+        String current = currentPrincipal().getExternalId();
 
-        if (!current.getExternalId().equals(extUserId))
+        if (current == null || !current.equals(ExternalIds.normalize(extUserId)))
             throw new AccessDeniedException(
-                    "User " + current.getExternalId() + " cannot access resource of user " + extUserId
+                    "User " + current + " cannot access resource of user " + extUserId
             );
 
         return true;
@@ -131,4 +118,19 @@ public class AuthzService {
 
         return true;
     }
+
+    /// //////////////////////////////////////////////////////////////////intern
+
+    /// Id und externe Id stehen schon im JWT-Principal, dafür muss der Benutzer nicht geladen werden
+    private BenutzerDetails currentPrincipal() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof BenutzerDetails details) {
+            return details;
+        }
+        throw new AccessDeniedException("Not authenticated");
+    }
+
+    private Long currentUserId() {
+        return currentPrincipal().getId();
+    }
 }
@@ -0,0 +1,41 @@
+package com.lennadi.eventbubble30.security;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.function.Supplier;
+
+/**
+ * Merkt sich Werte für die Dauer eines HTTP-Requests (als Request-Attribut), z.B. den aktuellen Benutzer oder den
+ * Besitzer eines Events für die Authz-Prüfungen. Außerhalb eines Requests (Scheduler, Async) wird einfach jedes Mal
+ * neu berechnet.
+ */
+public final class RequestMemo {
+
+    private static final String PREFIX = RequestMemo.class.getName() + ".";
+
+    /// damit auch "nicht gefunden" gemerkt wird
+    private static final Object NULL = new Object();
+
+    private RequestMemo() {}
+
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String key, Supplier<T> loader) {
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs == null) return loader.get();
+
+        String name = PREFIX + key;
+        Object v = attrs.getAttribute(name, RequestAttributes.SCOPE_REQUEST);
+        if (v == null) {
+            v = loader.get();
+            attrs.setAttribute(name, v != null ? v : NULL, RequestAttributes.SCOPE_REQUEST);
+        }
+        return v == NULL ? null : (T) v;
+    }
+
+    /// z.B. nach Änderungen am Benutzer im selben Request
+    public static void forget(String key) {
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs != null) attrs.removeAttribute(PREFIX + key, RequestAttributes.SCOPE_REQUEST);
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lennadi.eventbubble30.exceptions.ApiErrorResponse;
 import com.lennadi.eventbubble30.filter.JwtAuthFilter;
 import com.lennadi.eventbubble30.filter.LastSeenFilter;
+import com.lennadi.eventbubble30.filter.RateLimitFilter;
 import com.lennadi.eventbubble30.logging.RequestLogFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -45,7 +46,7 @@ public class SecurityConfiguration {
     private final RequestLogFilter requestLogFilter;
 
     @Bean
-    public SecurityFilterChain secFilterChain(HttpSecurity http, LastSeenFilter lastSeenFilter) throws Exception {
+    public SecurityFilterChain secFilterChain(HttpSecurity http, LastSeenFilter lastSeenFilter, RateLimitFilter rateLimitFilter) throws Exception {
         http
                 .securityMatcher("/api/**")
                 .cors(Customizer.withDefaults())
@@ -89,7 +90,8 @@ public class SecurityConfiguration {
 
                 .authenticationProvider(authenticationProvider())
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
-                .addFilterAfter(lastSeenFilter, JwtAuthFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthFilter.class) //vor allem anderen, abgelehnte Requests kosten sonst nichts
+                .addFilterAfter(lastSeenFilter, RateLimitFilter.class)
 
                 .addFilterAfter(requestLogFilter, LastSeenFilter.class);
         ;
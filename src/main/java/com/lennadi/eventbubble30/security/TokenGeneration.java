@@ -12,6 +12,11 @@ public class TokenGeneration {
         return secureToken(32);
     }
 
+    /// 16 Zeichen, für Username/E-Mail gelöschter Benutzer
+    public static String generateTombstone() {
+        return secureToken(12);
+    }
+
     private static String secureToken(int lenBytes){
         byte[] bytes = new byte[lenBytes];
         SecureRandom secureRandom = new SecureRandom();
@@ -0,0 +1,104 @@
+package com.lennadi.eventbubble30.security.password;
+
+import com.lennadi.eventbubble30.exceptions.ErrorCodes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+/**
+ * Bulkhead für BCrypt: Hashen und Prüfen von Passwörtern läuft auf einem eigenen, begrenzten Pool
+ * ({@code password.hashing.threads}) mit fester Warteschlange ({@code password.hashing.queue}).
+ * <p>
+ * Ist beides voll (z.B. Credential-Stuffing), gibt es sofort 429 statt dass alle Tomcat-Threads in BCrypt hängen.
+ * Es warten also nie mehr als threads + queue Requests auf einen Hash, alle anderen Endpunkte laufen normal weiter.
+ * <p>
+ * Metriken: {@code password.hash{op=encode|matches}} (Dauer der eigentlichen Berechnung),
+ * {@code password.hash.queue} (wartende Aufträge), {@code password.hash.rejected}.
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder encoder;
+    private final Duration timeout;
+    private final ThreadPoolExecutor pool;
+
+    private final Timer encodeTimer, matchesTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(
+            PasswordEncoder encoder,
+            MeterRegistry registry,
+            @Value("${password.hashing.threads:0}") int threads,
+            @Value("${password.hashing.queue:64}") int queue,
+            @Value("${password.hashing.timeout:10s}") Duration timeout
+    ) {
+        this.encoder = encoder;
+        this.timeout = timeout;
+
+        int n = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r);
+            t.setName("password-hash-" + t.getId());
+            t.setDaemon(true);
+            return t;
+        };
+        this.pool = new ThreadPoolExecutor(n, n, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), factory, new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = registry.timer("password.hash", "op", "encode");
+        this.matchesTimer = registry.timer("password.hash", "op", "matches");
+        this.rejected = registry.counter("password.hash.rejected");
+        registry.gauge("password.hash.queue", pool, p -> p.getQueue().size());
+        registry.gauge("password.hash.active", pool, ThreadPoolExecutor::getActiveCount);
+    }
+
+    public String encode(String raw) {
+        return run(() -> encodeTimer.record(() -> encoder.encode(raw)));
+    }
+
+    public boolean matches(String raw, String hash) {
+        if (raw == null || hash == null) return false;
+        return run(() -> matchesTimer.record(() -> encoder.matches(raw, hash)));
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> f;
+        try {
+            f = pool.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, ErrorCodes.TOO_BUSY.toString());
+        }
+
+        try {
+            return f.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, ErrorCodes.TOO_BUSY.toString());
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,118 @@
+package com.lennadi.eventbubble30.security.ratelimit;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-Window-Zähler pro Key (IP oder Benutzer-Id): gezählt wird im aktuellen festen Fenster, das vorige Fenster
+ * geht anteilig (nach verbleibender Überlappung) mit ein. Zwei Zahlen pro Key statt einer Liste von Zeitstempeln.
+ * <p>
+ * Die Keys sind auf {@code STRIPES} Teil-Maps verteilt, jede mit eigenem Lock und LRU-Obergrenze, damit paralleler
+ * Zugriff sich kaum blockiert und der Speicher begrenzt bleibt. Keys, die zwei Fenster lang nichts gemacht haben,
+ * fliegen bei {@link #evictIdle} raus.
+ */
+public class RateLimiter {
+
+    private static final int STRIPES = 16;
+
+    private final int limit;
+    private final long windowMs;
+    private final LongSupplier clock;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * @param retryAfterSeconds 0 wenn erlaubt, sonst Sekunden bis zum nächsten Fenster (mindestens 1)
+     */
+    public record Decision(boolean allowed, long retryAfterSeconds) {}
+
+    private static final class Window {
+        long start;
+        int previous, current;
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Window> {
+        private final int max;
+
+        Stripe(int max) {
+            super(64, 0.75f, true);
+            this.max = max;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+            return size() > max;
+        }
+    }
+
+    public RateLimiter(int limit, Duration window, int maxKeys) {
+        this(limit, window, maxKeys, System::currentTimeMillis);
+    }
+
+    RateLimiter(int limit, Duration window, int maxKeys, LongSupplier clock) {
+        this.limit = limit;
+        this.windowMs = window.toMillis();
+        this.clock = clock;
+        int perStripe = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(perStripe);
+    }
+
+    /// zählt den Versuch mit, wenn er erlaubt ist
+    public Decision tryAcquire(String key) {
+        long now = clock.getAsLong();
+        long start = now - Math.floorMod(now, windowMs);
+
+        Stripe s = stripe(key);
+        synchronized (s) {
+            Window w = s.computeIfAbsent(key, k -> new Window());
+            roll(w, start);
+
+            double overlap = 1.0 - (double) (now - start) / windowMs;
+            double estimate = w.previous * overlap + w.current;
+            if (estimate + 1 > limit) {
+                long retry = Math.max(1, (start + windowMs - now + 999) / 1000);
+                return new Decision(false, retry);
+            }
+            w.current++;
+            return new Decision(true, 0);
+        }
+    }
+
+    /// Keys ohne Zugriff in diesem und dem letzten Fenster entfernen
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        long start = now - Math.floorMod(now, windowMs);
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                Iterator<Window> it = s.values().iterator();
+                while (it.hasNext()) {
+                    if (it.next().start < start - windowMs) it.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        int n = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                n += s.size();
+            }
+        }
+        return n;
+    }
+
+    private void roll(Window w, long start) {
+        if (w.start == start) return;
+        w.previous = w.start == start - windowMs ? w.current : 0;
+        w.current = 0;
+        w.start = start;
+    }
+
+    private Stripe stripe(String key) {
+        return stripes[Math.floorMod(key.hashCode(), STRIPES)];
+    }
+}
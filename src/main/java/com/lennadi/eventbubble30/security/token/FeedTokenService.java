@@ -0,0 +1,77 @@
+package com.lennadi.eventbubble30.security.token;
+
+import com.lennadi.eventbubble30.config.ServerConfigService;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Token für Kalender-Abos (ICS-Feeds). Kalender-Apps können keinen Bearer-Header schicken, der Feed-Link muss sich
+ * also selbst ausweisen: HMAC-SHA256 über die externe Benutzer-Id und die Zeitpunkte, zu denen Tokens widerrufen
+ * wurden (tokensInvalidatedAt, passwordChangedAt, globaler Widerruf), abgeleitet vom JWT-Secret. Läuft nicht ab,
+ * aber "Abmelden überall", eine Passwortänderung oder {@code invalidate-tokens} machen alte Links ungültig.
+ */
+@Service
+public class FeedTokenService {
+
+    private static final String PURPOSE = "ics-feed:";
+
+    private final BenutzerRepository benutzerRepository;
+    private final ServerConfigService serverConfigService;
+    private final String secret;
+
+    public FeedTokenService(
+            BenutzerRepository benutzerRepository,
+            ServerConfigService serverConfigService,
+            @Value("${app.jwt.secret:}") String secret
+    ) {
+        this.benutzerRepository = benutzerRepository;
+        this.serverConfigService = serverConfigService;
+        this.secret = secret;
+    }
+
+    public String tokenFor(Benutzer b) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac(b));
+    }
+
+    public boolean isValid(String userExtId, String token) {
+        if (userExtId == null || token == null) return false;
+        byte[] given;
+        try {
+            given = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return benutzerRepository.findByExternalIdIgnoreCase(userExtId)
+                .map(b -> MessageDigest.isEqual(mac(b), given))
+                .orElse(false);
+    }
+
+    private byte[] mac(Benutzer b) {
+        Instant global = serverConfigService.getGlobalTokenRevokationTime();
+        String input = b.getExternalId().toLowerCase()
+                + "|" + epochMillis(b.getTokensInvalidatedAt())
+                + "|" + epochMillis(b.getPasswordChangedAt())
+                + "|" + epochMillis(global);
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec((PURPOSE + secret).getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(input.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static long epochMillis(Instant i) {
+        return i != null ? i.toEpochMilli() : 0;
+    }
+}
@@ -2,11 +2,11 @@ package com.lennadi.eventbubble30.security.token;
 
 import com.lennadi.eventbubble30.features.service.BenutzerService;
 import com.lennadi.eventbubble30.security.BenutzerDetails;
-import com.lennadi.eventbubble30.security.BenutzerDetailsService;
 import com.lennadi.eventbubble30.security.token.exceptions.*;
 import com.lennadi.eventbubble30.config.ServerConfigService;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -41,13 +41,21 @@ public class JwtService {
     private long refreshTokenValidityMs;
 
     private final ServerConfigService serverConfigService;
-    private final BenutzerDetailsService benutzerDetailsService;
+
+    private final TokenValidationCache validationCache;
+
+    /// einmal gebaut statt pro Request (base64 dekodieren + neuer Parser)
+    private Key signingKey;
+    private JwtParser parser;
 
     @PostConstruct
     public void init() {
         if(secret==null||secret.isBlank()) {
             System.err.println("WARNING: No JWT secret set!");
+            return;
         }
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
     /// //////////////////////////////////////////////
@@ -69,6 +77,7 @@ public class JwtService {
     /// /////////////////////////////////////////////////
 
     private Key getSigningKey() {
+        if (signingKey != null) return signingKey;
         byte[] keyBytes = Decoders.BASE64.decode(secret);
         return Keys.hmacShaKeyFor(keyBytes);
     }
@@ -96,11 +105,8 @@ public class JwtService {
     }
 
     private Claims parseAllClaims(String token) throws JwtException {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        JwtParser p = parser != null ? parser : Jwts.parserBuilder().setSigningKey(getSigningKey()).build();
+        return p.parseClaimsJws(token).getBody();
     }
 
 
@@ -137,7 +143,7 @@ public class JwtService {
 
         BenutzerDetails user;
         try{
-            user = benutzerDetailsService.loadUserById(tokenUserId);
+            user = validationCache.user(tokenUserId);
         }catch (Exception e){
             throw new TokenUserDoesNotExistException(tokenUserId);
         }
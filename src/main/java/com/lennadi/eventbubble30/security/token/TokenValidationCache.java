@@ -0,0 +1,105 @@
+package com.lennadi.eventbubble30.security.token;
+
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.security.BenutzerDetails;
+import com.lennadi.eventbubble30.security.BenutzerDetailsService;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hält pro Benutzer die {@link BenutzerDetails} (Rollen, tokensInvalidatedAt, passwordChangedAt) für die
+ * Token-Validierung im Speicher, damit ein authentifizierter Request keine DB-Abfrage braucht.
+ * <p>
+ * Jede Änderung an einem Benutzer (Passwort, Token-Invalidierung, Rollen, Löschen, ...) wirft den Eintrag raus, über
+ * {@link EvictionListener} direkt und nochmal nach dem Commit. Die TTL fängt ab, was an Hibernate vorbeiläuft
+ * (Bulk-Updates, andere Instanzen).
+ */
+@Component
+public class TokenValidationCache {
+
+    private final BenutzerDetailsService benutzerDetailsService;
+    private final Duration ttl;
+    private final int maxEntries;
+
+    private record Entry(BenutzerDetails details, Instant expires) {}
+
+    private final LinkedHashMap<Long, Entry> entries;
+
+    public TokenValidationCache(
+            BenutzerDetailsService benutzerDetailsService,
+            @Value("${app.jwt.validation-cache.ttl:5m}") Duration ttl,
+            @Value("${app.jwt.validation-cache.max-entries:10000}") int maxEntries
+    ) {
+        this.benutzerDetailsService = benutzerDetailsService;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > TokenValidationCache.this.maxEntries;
+            }
+        };
+    }
+
+    /// @throws org.springframework.security.core.userdetails.UsernameNotFoundException wenn es den Benutzer nicht (mehr) gibt
+    public BenutzerDetails user(Long userId) {
+        synchronized (this) {
+            Entry e = entries.get(userId);
+            if (e != null && e.expires().isAfter(Instant.now())) return e.details();
+        }
+
+        // außerhalb des Locks laden, im schlimmsten Fall lädt ein zweiter Request parallel dasselbe
+        BenutzerDetails details = benutzerDetailsService.loadUserById(userId);
+        synchronized (this) {
+            entries.put(userId, new Entry(details, Instant.now().plus(ttl)));
+        }
+        return details;
+    }
+
+    public synchronized void evict(Long userId) {
+        entries.remove(userId);
+    }
+
+    /// sofort und nach dem Commit, sonst kann ein paralleler Request den alten Stand wieder eintragen
+    void evictNowAndAfterCommit(Long userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * JPA-Listener auf {@link Benutzer}, von Hibernate über den Spring-Bean-Container erzeugt.
+     * Der Cache wird erst beim ersten Event geholt, beim Bauen der EntityManagerFactory existiert er noch nicht.
+     */
+    @Component
+    public static class EvictionListener {
+        private final ObjectProvider<TokenValidationCache> cache;
+
+        public EvictionListener(ObjectProvider<TokenValidationCache> cache) {
+            this.cache = cache;
+        }
+
+        @PostUpdate
+        @PostRemove
+        public void changed(Benutzer b) {
+            TokenValidationCache c = cache.getIfAvailable();
+            if (c != null && b.getId() != null) c.evictNowAndAfterCommit(b.getId());
+        }
+    }
+}
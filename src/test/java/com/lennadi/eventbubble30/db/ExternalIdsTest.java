@@ -0,0 +1,44 @@
+package com.lennadi.eventbubble30.db;
+
+import com.lennadi.eventbubble30.features.db.ExternalIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalIdsTest {
+
+    @Test
+    void uuid7_versionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = ExternalIds.uuid7();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= after + 1);
+    }
+
+    @Test
+    void uuid7_sortsInCreationOrder() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) ids.add(ExternalIds.next());
+
+        List<String> sorted = new ArrayList<>(ids);
+        sorted.sort(null);
+        assertEquals(ids, sorted);
+        assertEquals(ids.size(), ids.stream().distinct().count());
+    }
+
+    @Test
+    void normalize_matchesStoredForm() {
+        String v4 = UUID.randomUUID().toString();
+        assertEquals(v4, ExternalIds.normalize(" " + v4.toUpperCase() + " "));
+        assertNull(ExternalIds.normalize(null));
+    }
+}
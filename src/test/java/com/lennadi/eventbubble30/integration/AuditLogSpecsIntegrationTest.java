@@ -0,0 +1,149 @@
+package com.lennadi.eventbubble30.integration;
+
+import com.lennadi.eventbubble30.TestConfig;
+import com.lennadi.eventbubble30.features.db.EntityType;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import com.lennadi.eventbubble30.logging.AuditCursor;
+import com.lennadi.eventbubble30.logging.AuditLog;
+import com.lennadi.eventbubble30.logging.AuditLogRepository;
+import com.lennadi.eventbubble30.logging.AuditLogRepository.Specs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = TestConfig.class)
+@AutoConfigureMockMvc(addFilters = false)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class AuditLogSpecsIntegrationTest {
+
+    private static final Instant T = Instant.parse("2030-01-01T12:00:00Z");
+
+    @Autowired MockMvc mvc;
+    @Autowired AuditLogRepository auditLogRepo;
+    @Autowired BenutzerRepository benutzerRepo;
+
+    private Benutzer alice;
+    private AuditLog a, b, c, d, e, f;
+
+    @BeforeEach
+    void setup() {
+        alice = new Benutzer();
+        alice.setEmail("alice@test.com");
+        alice.setUsername("alice");
+        alice.setPasswordHash("x");
+        alice = benutzerRepo.save(alice);
+
+        // absichtlich nicht in timestamp-Reihenfolge gespeichert, damit die ids nicht mitsortieren
+        f = save(alice, AuditLog.Action.CREATE, true, T.plus(Duration.ofHours(1)), EntityType.EVENT, "e2");
+        b = save(null, AuditLog.Action.UPDATE, true, T, EntityType.EVENT, "e1");
+        a = save(alice, AuditLog.Action.LOGIN, true, T.minus(Duration.ofHours(1)), EntityType.USER, null);
+        c = save(null, AuditLog.Action.UPDATE, true, T, EntityType.EVENT, "e1");
+        e = save(null, AuditLog.Action.DELETE, false, T, EntityType.USER, null);
+        d = save(null, AuditLog.Action.UPDATE, true, T, EntityType.EVENT, "e1");
+    }
+
+    @Test
+    void seekPagesAcrossTiesOnTimestamp() {
+        List<Long> expected = Stream.of(a, b, c, d, e, f)
+                .sorted(Comparator.comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId).reversed())
+                .map(AuditLog::getId)
+                .toList();
+
+        List<Long> seen = new ArrayList<>();
+        AuditCursor after = null;
+        for (int guard = 0; guard < 10; guard++) {
+            List<AuditLog> page = page(Specs.seek(after), 2);
+            page.forEach(l -> seen.add(l.getId()));
+            if (page.size() < 2) break;
+            // wie der Client: Cursor geht einmal durch encode/decode
+            after = AuditCursor.decode(AuditCursor.after(page.get(page.size() - 1)).encode());
+        }
+
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void seekWithoutCursorIsNoFilter() {
+        assertEquals(6, auditLogRepo.count(Specs.seek(null)));
+    }
+
+    @Test
+    void filterCombinations() {
+        assertEquals(ids(a, b, c, d, e, f), find(Specs.filter(null, null, null, null, null, null, null)));
+
+        assertEquals(ids(a, f), find(Specs.filter(alice.getExternalId(), null, null, null, null, null, null)));
+        assertEquals(Set.of(), find(Specs.filter("unbekannt", null, null, null, null, null, null)));
+
+        assertEquals(ids(b, c, d, e), find(Specs.filter(null,
+                List.of(AuditLog.Action.UPDATE, AuditLog.Action.DELETE), null, null, null, null, null)));
+        assertEquals(ids(b, c, d), find(Specs.filter(null, null, EntityType.EVENT, "e1", null, null, null)));
+        assertEquals(ids(e), find(Specs.filter(null, null, null, null, false, null, null)));
+
+        // from/to inklusiv
+        assertEquals(ids(b, c, d, e), find(Specs.filter(null, null, null, null, null, T, T)));
+        assertEquals(ids(b, c, d, e, f), find(Specs.filter(null, null, null, null, null, T, null)));
+
+        assertEquals(ids(f), find(Specs.filter(alice.getExternalId(),
+                List.of(AuditLog.Action.CREATE), null, null, true, null, null)));
+    }
+
+    @Test
+    void filterAndSeekTogether() {
+        AuditCursor afterD = AuditCursor.after(d);
+        Specification<AuditLog> spec = Specs.filter(null, List.of(AuditLog.Action.UPDATE), null, null, null, null, null)
+                .and(Specs.seek(afterD));
+
+        // gleicher timestamp wie d, vor d gespeichert, also kleinere id
+        assertEquals(ids(b, c), find(spec));
+    }
+
+    @Test
+    void malformedCursorIsBadRequest() throws Exception {
+        mvc.perform(get("/api/admin/audit-log").param("cursor", "kaputt!"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /// //////////////////////////////////////////////////////////////////
+
+    private AuditLog save(Benutzer user, AuditLog.Action action, boolean success, Instant ts,
+                          EntityType type, String resourceId) {
+        return auditLogRepo.save(new AuditLog(
+                user, "127.0.0.1", user != null ? user.getUsername() : null, Set.of(),
+                action, "", success, "/test", ts, type, resourceId
+        ));
+    }
+
+    private List<AuditLog> page(Specification<AuditLog> spec, int size) {
+        return auditLogRepo.findBy(spec, q -> q
+                .sortBy(AuditLogRepository.NEWEST_FIRST)
+                .limit(size)
+                .all());
+    }
+
+    private Set<Long> find(Specification<AuditLog> spec) {
+        return auditLogRepo.findAll(spec).stream().map(AuditLog::getId).collect(Collectors.toSet());
+    }
+
+    private static Set<Long> ids(AuditLog... logs) {
+        return Stream.of(logs).map(AuditLog::getId).collect(Collectors.toSet());
+    }
+}
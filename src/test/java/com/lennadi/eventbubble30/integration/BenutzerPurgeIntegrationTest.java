@@ -0,0 +1,113 @@
+package com.lennadi.eventbubble30.integration;
+
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.service.BenutzerService;
+import com.lennadi.eventbubble30.features.service.PurgeService;
+import com.lennadi.eventbubble30.security.BenutzerDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// echter BenutzerService (ohne TestConfig), Retention 0: alles Soft-Gelöschte ist sofort fällig
+@SpringBootTest(properties = {"purge.retention=0s", "purge.pause=0ms"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class BenutzerPurgeIntegrationTest {
+
+    @Autowired BenutzerService benutzerService;
+    @Autowired PurgeService purgeService;
+    @Autowired BenutzerRepository benutzerRepo;
+    @Autowired VeranstaltungsRepository veranstaltungsRepo;
+    @Autowired JdbcTemplate jdbc;
+
+    private Benutzer alice, bob;
+    private Veranstaltung aliceEvent, bobEvent;
+
+    @BeforeEach
+    void setup() {
+        alice = user("alice");
+        bob = user("bob");
+        aliceEvent = event("Alice lädt ein", alice);
+        bobEvent = event("Bob lädt ein", bob);
+
+        // gegenseitige Bookmarks: beide Richtungen müssen beim Purge verschwinden
+        alice.getBookmarkedVeranstaltungen().add(bobEvent);
+        bob.getBookmarkedVeranstaltungen().add(aliceEvent);
+        alice = benutzerRepo.save(alice);
+        bob = benutzerRepo.save(bob);
+
+        BenutzerDetails details = new BenutzerDetails(alice);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities()));
+    }
+
+    @AfterEach
+    void cleanup() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void softDeleteThenPurgeRemovesUserEventsAndBookmarks() {
+        benutzerService.deleteUserById(alice.getExternalId());
+
+        // soft: unsichtbar, aber noch da, Tombstone-Name kann kein Signup erzeugen
+        assertTrue(benutzerRepo.findById(alice.getId()).isEmpty());
+        assertTrue(veranstaltungsRepo.findById(aliceEvent.getId()).isEmpty());
+        String username = jdbc.queryForObject("select username from benutzer where id = ?", String.class, alice.getId());
+        String email = jdbc.queryForObject("select email from benutzer where id = ?", String.class, alice.getId());
+        assertFalse(username.matches("^[a-zA-Z0-9_]+$"), username);
+        assertFalse(email.contains(alice.getId() + "@"), email);
+        assertEquals(2, count("select count(*) from benutzer_bookmarked_veranstaltungen"));
+
+        purgeService.purge();
+
+        assertEquals(0, count("select count(*) from benutzer where id = " + alice.getId()));
+        assertEquals(0, count("select count(*) from veranstaltung where id = " + aliceEvent.getId()));
+        assertEquals(0, count("select count(*) from benutzer_bookmarked_veranstaltungen"));
+
+        assertTrue(benutzerRepo.findById(bob.getId()).isPresent());
+        assertTrue(veranstaltungsRepo.findById(bobEvent.getId()).isPresent());
+    }
+
+    @Test
+    void freedUsernameAndEmailCanBeTakenAgain() {
+        benutzerService.deleteUserById(alice.getExternalId());
+
+        Benutzer again = benutzerService.createUser("alice@test.com", "alice", "12345678");
+        assertNotEquals(alice.getId(), again.getId());
+    }
+
+    /// //////////////////////////////////////////////////////////////////
+
+    private long count(String sql) {
+        return jdbc.queryForObject(sql, Long.class);
+    }
+
+    private Benutzer user(String name) {
+        Benutzer b = new Benutzer();
+        b.setEmail(name + "@test.com");
+        b.setUsername(name);
+        b.setPasswordHash("x");
+        return benutzerRepo.save(b);
+    }
+
+    private Veranstaltung event(String title, Benutzer owner) {
+        Veranstaltung v = new Veranstaltung();
+        v.setTitle(title);
+        v.setTermin(Instant.parse("2030-06-01T18:00:00Z"));
+        v.setBesitzer(owner);
+        return veranstaltungsRepo.save(v);
+    }
+}
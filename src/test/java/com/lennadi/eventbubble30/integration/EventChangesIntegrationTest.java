@@ -0,0 +1,174 @@
+package com.lennadi.eventbubble30.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lennadi.eventbubble30.TestConfig;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.search.EventCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/// Delta-Sync über GET /api/events/changes; settle 0, damit frische Änderungen sofort sichtbar sind
+@SpringBootTest(classes = TestConfig.class, properties = "sync.settle=0s")
+@AutoConfigureMockMvc(addFilters = false)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EventChangesIntegrationTest {
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+    @Autowired JdbcTemplate jdbc;
+
+    @Autowired BenutzerRepository benutzerRepo;
+    @Autowired VeranstaltungsRepository veranstaltungsRepo;
+
+    @BeforeEach
+    void setup() {
+        Benutzer b = new Benutzer();
+        b.setEmail("owner@test.com");
+        b.setUsername("owner");
+        b.setPasswordHash("x");
+        benutzerRepo.save(b); // → current user (TestConfig)
+    }
+
+    @Test
+    void createPatchAndDeleteShowUpAfterTheCursor() throws Exception {
+        String keep = save("Bleibt");
+        String patched = save("Vorher");
+        String deleted = save("Weg");
+
+        JsonNode first = sync(null, 100);
+        assertEquals(List.of(keep, patched, deleted), ids(first));
+        assertFalse(first.get("hasMore").asBoolean());
+        String cursor = first.get("nextCursor").asText();
+
+        mvc.perform(patch("/api/events/" + patched)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Nachher\"}"))
+                .andExpect(status().isOk());
+        mvc.perform(delete("/api/events/" + deleted))
+                .andExpect(status().isNoContent());
+
+        JsonNode delta = sync(cursor, 100);
+        assertEquals(List.of(patched, deleted), ids(delta));
+
+        JsonNode p = delta.get("changes").get(0);
+        assertFalse(p.get("deleted").asBoolean());
+        assertEquals("Nachher", p.get("event").get("title").asText());
+
+        JsonNode tombstone = delta.get("changes").get(1);
+        assertTrue(tombstone.get("deleted").asBoolean());
+        assertFalse(tombstone.hasNonNull("event"));
+
+        // nichts Neues: leere Seite, Cursor bleibt stehen
+        String after = delta.get("nextCursor").asText();
+        JsonNode empty = sync(after, 100);
+        assertTrue(empty.get("changes").isEmpty());
+        assertEquals(after, empty.get("nextCursor").asText());
+    }
+
+    @Test
+    void pagesAcrossTiesOnModificationDate() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) expected.add(save("gleich " + i));
+        // alle mit derselben modification_date, Reihenfolge dann nur noch über die id
+        jdbc.update("update veranstaltung set modification_date = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofHours(1))));
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        for (int guard = 0; guard < 10; guard++) {
+            JsonNode page = sync(cursor, 2);
+            seen.addAll(ids(page));
+            cursor = page.get("nextCursor").asText();
+            if (!page.get("hasMore").asBoolean()) break;
+        }
+
+        assertEquals(expected, seen);
+        assertTrue(sync(cursor, 2).get("changes").isEmpty());
+    }
+
+    @Test
+    void changesInsideTheSettleWindowAreHeldBack() throws Exception {
+        String settled = save("Alt");
+        String fresh = save("Noch nicht");
+        // liegt hinter now - settle, könnte also noch von einer laufenden Transaktion überholt werden
+        jdbc.update("update veranstaltung set modification_date = ? where external_id = ?",
+                Timestamp.from(Instant.now().plus(Duration.ofMinutes(5))), fresh);
+
+        assertEquals(List.of(settled), ids(sync(null, 100)));
+    }
+
+    @Test
+    void cursorOlderThanRetentionIsGone() throws Exception {
+        String old = new EventCursor(
+                VeranstaltungsRepository.OrderBy.modificationDate, VeranstaltungsRepository.OrderDir.asc,
+                Instant.now().minus(Duration.ofDays(31)), 1L
+        ).encode();
+
+        mvc.perform(get("/api/events/changes").param("since", old))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void foreignCursorIsRejected() throws Exception {
+        String termin = new EventCursor(
+                VeranstaltungsRepository.OrderBy.termin, VeranstaltungsRepository.OrderDir.asc,
+                Instant.now(), 1L
+        ).encode();
+
+        mvc.perform(get("/api/events/changes").param("since", termin))
+                .andExpect(status().isBadRequest());
+        String noValue = new EventCursor(
+                VeranstaltungsRepository.OrderBy.modificationDate, VeranstaltungsRepository.OrderDir.asc,
+                null, 1L
+        ).encode();
+        mvc.perform(get("/api/events/changes").param("since", noValue))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/events/changes").param("since", "kaputt!"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /// //////////////////////////////////////////////////////////////////
+
+    private JsonNode sync(String since, int size) throws Exception {
+        var req = get("/api/events/changes").param("size", Integer.toString(size));
+        if (since != null) req.param("since", since);
+        return mapper.readTree(mvc.perform(req)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static List<String> ids(JsonNode page) {
+        List<String> ids = new ArrayList<>();
+        page.get("changes").forEach(c -> ids.add(c.get("id").asText()));
+        return ids;
+    }
+
+    private String save(String title) {
+        Veranstaltung v = new Veranstaltung();
+        v.setTitle(title);
+        v.setTermin(Instant.parse("2030-06-01T18:00:00Z"));
+        v.setBesitzer(benutzerRepo.findById(1L).orElseThrow());
+        return veranstaltungsRepo.save(v).getExternalId();
+    }
+}
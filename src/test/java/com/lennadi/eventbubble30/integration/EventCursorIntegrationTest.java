@@ -0,0 +1,117 @@
+package com.lennadi.eventbubble30.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lennadi.eventbubble30.TestConfig;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = TestConfig.class)
+@AutoConfigureMockMvc(addFilters = false)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EventCursorIntegrationTest {
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Autowired BenutzerRepository benutzerRepo;
+    @Autowired VeranstaltungsRepository veranstaltungsRepo;
+
+    private final List<String> expectedAsc = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        Benutzer b = new Benutzer();
+        b.setEmail("owner@test.com");
+        b.setUsername("owner");
+        b.setPasswordHash("x");
+        benutzerRepo.save(b);
+
+        Instant same = Instant.parse("2030-06-01T18:00:00Z");
+        // 5 Events mit identischem Termin (Tiebreaker id), eins davor, eins danach, zwei ohne Termin
+        expectedAsc.add(save("früher", Instant.parse("2030-05-01T18:00:00Z")));
+        for (int i = 0; i < 5; i++) expectedAsc.add(save("gleich " + i, same));
+        expectedAsc.add(save("später", Instant.parse("2030-07-01T18:00:00Z")));
+        expectedAsc.add(save("ohne 1", null));
+        expectedAsc.add(save("ohne 2", null));
+    }
+
+    @Test
+    void pagesAcrossTiesAndEventsWithoutTermin() throws Exception {
+        assertEquals(expectedAsc, pageThrough("asc"));
+    }
+
+    @Test
+    void descendingKeepsEventsWithoutTerminLast() throws Exception {
+        List<String> expected = new ArrayList<>(expectedAsc.subList(0, 7));
+        Collections.reverse(expected);
+        expected.add(expectedAsc.get(8)); // ohne Termin: zuletzt, nach id absteigend
+        expected.add(expectedAsc.get(7));
+
+        assertEquals(expected, pageThrough("desc"));
+    }
+
+    @Test
+    void cursorAndOffsetModeReturnTheSameEvents() throws Exception {
+        JsonNode page = json(mvc.perform(get("/api/events")
+                        .param("orderBy", "termin").param("orderDir", "asc").param("size", "100"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        List<String> offset = new ArrayList<>();
+        page.get("content").forEach(c -> offset.add(c.get("id").asText()));
+        assertEquals(expectedAsc.size(), offset.size());
+        assertEquals(new HashSet<>(expectedAsc), new HashSet<>(offset));
+        assertEquals(expectedAsc.subList(7, 9).stream().sorted().toList(),
+                offset.subList(7, 9).stream().sorted().toList(), "ohne Termin auch im Offset-Modus zuletzt");
+    }
+
+    /// Seiten der Größe 2 bis hasNext=false
+    private List<String> pageThrough(String dir) throws Exception {
+        List<String> ids = new ArrayList<>();
+        String cursor = "";
+        for (int guard = 0; guard < 20; guard++) {
+            JsonNode page = json(mvc.perform(get("/api/events")
+                            .param("orderBy", "termin").param("orderDir", dir)
+                            .param("size", "2").param("cursor", cursor))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+
+            page.get("content").forEach(c -> ids.add(c.get("id").asText()));
+            if (!page.get("hasNext").asBoolean()) return ids;
+            cursor = page.get("nextCursor").asText();
+        }
+        return fail("cursor paging did not terminate");
+    }
+
+    private JsonNode json(String s) throws Exception {
+        return mapper.readTree(s);
+    }
+
+    private String save(String title, Instant termin) {
+        Veranstaltung v = new Veranstaltung();
+        v.setTitle(title);
+        v.setTermin(termin);
+        v.setBesitzer(benutzerRepo.findById(1L).orElseThrow());
+        return veranstaltungsRepo.save(v).getExternalId();
+    }
+}
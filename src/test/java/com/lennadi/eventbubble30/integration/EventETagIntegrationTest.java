@@ -0,0 +1,120 @@
+package com.lennadi.eventbubble30.integration;
+
+import com.lennadi.eventbubble30.TestConfig;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.service.BookmarkCountService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = TestConfig.class)
+@AutoConfigureMockMvc(addFilters = false)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EventETagIntegrationTest {
+
+    @Autowired MockMvc mvc;
+
+    @Autowired BenutzerRepository benutzerRepo;
+    @Autowired VeranstaltungsRepository veranstaltungsRepo;
+    @Autowired BookmarkCountService bookmarkCounts;
+
+    private Veranstaltung event;
+
+    @BeforeEach
+    void setup() {
+        Benutzer b = new Benutzer();
+        b.setEmail("owner@test.com");
+        b.setUsername("owner");
+        b.setPasswordHash("x");
+        benutzerRepo.save(b); // → current user (TestConfig)
+
+        Veranstaltung v = new Veranstaltung();
+        v.setTitle("Konzert");
+        v.setTermin(Instant.parse("2030-06-01T18:00:00Z"));
+        v.setBesitzer(b);
+        event = veranstaltungsRepo.save(v);
+    }
+
+    @Test
+    void matchingETagGives304WithoutBody() throws Exception {
+        String etag = etag();
+        assertTrue(etag.startsWith("W/\""), etag);
+
+        mvc.perform(get(url()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void patchChangesTheETag() throws Exception {
+        String before = etag();
+        Thread.sleep(5); // modificationDate geht in Millisekunden in den ETag
+
+        mvc.perform(patch(url())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Konzert (verlegt)\"}"))
+                .andExpect(status().isOk());
+
+        mvc.perform(get(url()).header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk());
+        assertNotEquals(before, etag());
+    }
+
+    @Test
+    void bookmarkCountChangesTheETagWithoutModificationDate() throws Exception {
+        String before = etag();
+
+        bookmarkCounts.increment(event.getId()); // noch nicht geflusht, zählt aber schon in der Anzeige
+
+        assertNotEquals(before, etag());
+    }
+
+    @Test
+    void levelIsPartOfTheETag() throws Exception {
+        String full = etag();
+        String card = mvc.perform(get(url()).param("level", "CARD"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertNotEquals(full, card);
+        mvc.perform(get(url()).param("level", "CARD").header(HttpHeaders.IF_NONE_MATCH, full))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void unknownEventIs404() throws Exception {
+        mvc.perform(get("/api/events/gibtsnicht").header(HttpHeaders.IF_NONE_MATCH, "W/\"x\""))
+                .andExpect(status().isNotFound());
+    }
+
+    /// //////////////////////////////////////////////////////////////////
+
+    private String url() {
+        return "/api/events/" + event.getExternalId();
+    }
+
+    private String etag() throws Exception {
+        String etag = mvc.perform(get(url()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
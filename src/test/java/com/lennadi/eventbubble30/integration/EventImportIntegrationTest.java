@@ -0,0 +1,98 @@
+package com.lennadi.eventbubble30.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lennadi.eventbubble30.TestConfig;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = TestConfig.class, properties = "import.chunk-size=2")
+@AutoConfigureMockMvc(addFilters = false)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EventImportIntegrationTest {
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper mapper;
+
+    @Autowired BenutzerRepository benutzerRepo;
+    @Autowired VeranstaltungsRepository veranstaltungsRepo;
+
+    @BeforeEach
+    void setup() {
+        Benutzer b = new Benutzer();
+        b.setEmail("admin@test.com");
+        b.setUsername("admin");
+        b.setPasswordHash("x");
+        benutzerRepo.save(b); // → current user (TestConfig)
+    }
+
+    @Test
+    void importMixedValidAndInvalidLines() throws Exception {
+        String ndjson = String.join("\n",
+                "{\"title\":\"Eins\",\"termin\":\"2030-01-01T12:00:00Z\"}",
+                "{\"title\":",                                   // kaputtes JSON
+                "",                                              // Leerzeilen werden übersprungen
+                "{\"title\":\"\",\"termin\":\"2030-01-02T12:00:00Z\"}", // Validierung
+                "{\"title\":\"Zwei\",\"description\":\"d\"}",
+                "{\"title\":\"Drei\",\"termin\":\"kein datum\"}",   // falscher Typ
+                "{\"title\":\"Vier\"}"
+        ) + "\n";
+
+        MvcResult started = mvc.perform(post("/api/admin/events/import")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : body.split("\n")) results.add(mapper.readTree(line));
+
+        Set<Long> okLines = results.stream()
+                .filter(r -> r.path("ok").asBoolean(false))
+                .map(r -> r.get("line").asLong())
+                .collect(Collectors.toSet());
+        Set<Long> failedLines = results.stream()
+                .filter(r -> r.has("error"))
+                .map(r -> r.get("line").asLong())
+                .collect(Collectors.toSet());
+
+        assertEquals(Set.of(1L, 5L, 7L), okLines);
+        assertEquals(Set.of(2L, 4L, 6L), failedLines);
+
+        JsonNode done = results.get(results.size() - 1);
+        assertTrue(done.get("done").asBoolean());
+        assertEquals(3, done.get("imported").asLong());
+        assertEquals(3, done.get("failed").asLong());
+
+        List<Veranstaltung> saved = veranstaltungsRepo.findAll();
+        assertEquals(Set.of("Eins", "Zwei", "Vier"),
+                saved.stream().map(Veranstaltung::getTitle).collect(Collectors.toSet()));
+        assertEquals(3, saved.stream().map(Veranstaltung::getId).distinct().count(), "Ids aus der Sequence, über Chunks hinweg eindeutig");
+        assertTrue(saved.stream().allMatch(v -> v.getBesitzer() != null && v.getBesitzer().getId() == 1L));
+    }
+}
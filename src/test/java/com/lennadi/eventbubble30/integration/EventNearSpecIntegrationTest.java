@@ -0,0 +1,77 @@
+package com.lennadi.eventbubble30.integration;
+
+import com.lennadi.eventbubble30.TestConfig;
+import com.lennadi.eventbubble30.features.db.Location;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository.Specs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Specs.near ist der DB-Fallback, wenn der EventGeoIndex zu viele Kandidaten hat: muss trotzdem ein Kreis sein
+@SpringBootTest(classes = TestConfig.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EventNearSpecIntegrationTest {
+
+    private static final double LAT = 50.0, LON = 10.0;
+
+    @Autowired BenutzerRepository benutzerRepo;
+    @Autowired VeranstaltungsRepository veranstaltungsRepo;
+
+    private Benutzer owner;
+
+    @BeforeEach
+    void setup() {
+        owner = new Benutzer();
+        owner.setEmail("owner@test.com");
+        owner.setUsername("owner");
+        owner.setPasswordHash("x");
+        owner = benutzerRepo.save(owner);
+    }
+
+    @Test
+    void cornersOfTheBoxAreCutOff() {
+        Long center = save(LAT, LON);
+        Long inside = save(LAT + 0.05, LON);           // ~5.6 km
+        Long corner = save(LAT + 0.08, LON + 0.12);    // ~12.4 km, aber noch in der Box
+        save(LAT + 0.2, LON);                           // ~22 km, außerhalb der Box
+
+        assertEquals(Set.of(center, inside), find(Specs.near(LAT, LON, 10.0)));
+        assertEquals(Set.of(center, inside, corner), find(Specs.near(LAT, LON, 13.0)));
+    }
+
+    @Test
+    void withoutRadiusIsNoFilter() {
+        save(LAT, LON);
+        save(-LAT, -LON);
+        assertEquals(2, veranstaltungsRepo.count(Specs.near(LAT, LON, null)));
+    }
+
+    /// //////////////////////////////////////////////////////////////////
+
+    private Set<Long> find(Specification<Veranstaltung> spec) {
+        return veranstaltungsRepo.findAll(spec).stream().map(Veranstaltung::getId).collect(Collectors.toSet());
+    }
+
+    private Long save(double lat, double lon) {
+        Veranstaltung v = new Veranstaltung();
+        v.setTitle(lat + "," + lon);
+        Location l = new Location();
+        l.setLatitude(lat);
+        l.setLongitude(lon);
+        v.setLocation(l);
+        v.setBesitzer(owner);
+        return veranstaltungsRepo.save(v).getId();
+    }
+}
@@ -0,0 +1,44 @@
+package com.lennadi.eventbubble30.logging;
+
+import com.lennadi.eventbubble30.features.db.EntityType;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditCursorTest {
+
+    @Test
+    void roundTrip() {
+        AuditCursor c = new AuditCursor(Instant.parse("2030-01-01T12:00:00.123456Z"), 42L);
+        assertEquals(c, AuditCursor.decode(c.encode()));
+    }
+
+    @Test
+    void afterTakesTimestampAndId() {
+        Instant ts = Instant.parse("2030-01-01T12:00:00Z");
+        AuditLog log = new AuditLog(null, "127.0.0.1", null, Set.of(), AuditLog.Action.OTHER, "",
+                true, "/", ts, EntityType.USER, null);
+        ReflectionTestUtils.setField(log, "id", 7L);
+
+        assertEquals(new AuditCursor(ts, 7L), AuditCursor.after(log));
+    }
+
+    @Test
+    void malformed() {
+        assertThrows(IllegalArgumentException.class, () -> AuditCursor.decode("!!"));
+        assertThrows(IllegalArgumentException.class, () -> AuditCursor.decode(base64("2030-01-01T12:00:00Z")));
+        assertThrows(IllegalArgumentException.class, () -> AuditCursor.decode(base64("2030-01-01T12:00:00Z|1|2")));
+        assertThrows(IllegalArgumentException.class, () -> AuditCursor.decode(base64("kein-datum|1")));
+        assertThrows(IllegalArgumentException.class, () -> AuditCursor.decode(base64("2030-01-01T12:00:00Z|null")));
+    }
+
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
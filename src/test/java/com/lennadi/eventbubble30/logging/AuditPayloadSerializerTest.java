@@ -0,0 +1,50 @@
+package com.lennadi.eventbubble30.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditPayloadSerializerTest {
+
+    record Login(String username, String password, Nested nested) {}
+
+    record Nested(String refreshToken, Map<String, Object> extra) {}
+
+    @SuppressWarnings("unused")
+    static void target(Login req, String token, String note) {}
+
+    private final AuditPayloadSerializer serializer = new AuditPayloadSerializer(AuditLog.PAYLOAD_LENGTH);
+
+    private static Method target() throws NoSuchMethodException {
+        return AuditPayloadSerializerTest.class.getDeclaredMethod("target", Login.class, String.class, String.class);
+    }
+
+    @Test
+    void redactsPropertiesMapKeysAndParameters() throws Exception {
+        Login req = new Login("alice", "geheim", new Nested("rt", Map.of("apiToken", "x", "city", "Köln")));
+
+        String json = serializer.serialize(target(), new String[]{"req", "token", "note"}, new Object[]{req, "abc", "hi"});
+
+        assertFalse(json.contains("geheim"));
+        assertFalse(json.contains("\"rt\""));
+        assertFalse(json.contains("\"x\""));
+        assertFalse(json.contains("abc"));
+        assertTrue(json.contains("alice"));
+        assertTrue(json.contains("Köln"));
+        assertTrue(json.contains("hi"));
+        assertTrue(json.contains(AuditPayloadSerializer.MASK));
+    }
+
+    @Test
+    void capsOutputWhileWriting() throws Exception {
+        String big = "a".repeat(50_000);
+
+        String json = serializer.serialize(target(), new String[]{"req", "token", "note"}, new Object[]{null, null, big});
+
+        assertTrue(json.length() <= AuditLog.PAYLOAD_LENGTH);
+        assertTrue(json.endsWith("...(truncated)"));
+    }
+}
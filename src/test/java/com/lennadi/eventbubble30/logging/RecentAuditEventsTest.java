@@ -0,0 +1,48 @@
+package com.lennadi.eventbubble30.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentAuditEventsTest {
+
+    private static RecentAuditEvents<String> filled(int capacity, long... ids) {
+        RecentAuditEvents<String> r = new RecentAuditEvents<>(capacity);
+        for (long id : ids) r.append(id, "e" + id);
+        return r;
+    }
+
+    @Test
+    void replaysEverythingAfterLastId() {
+        RecentAuditEvents<String> r = filled(5, 1, 2, 3, 7, 9);
+
+        RecentAuditEvents.Replay<String> replay = r.after(3);
+        assertEquals(List.of("e7", "e9"), replay.items());
+        assertTrue(replay.complete());
+
+        assertEquals(List.of(), r.after(9).items());
+        assertEquals(List.of("e9"), r.after(8).items(), "Lücken in den Ids sind normal");
+    }
+
+    @Test
+    void wrapsAroundAndReportsGap() {
+        RecentAuditEvents<String> r = filled(3, 1, 2, 3, 4, 5);
+        assertEquals(3, r.size());
+
+        assertEquals(List.of("e4", "e5"), r.after(3).items());
+        assertTrue(r.after(3).complete());
+
+        RecentAuditEvents.Replay<String> replay = r.after(1);
+        assertEquals(List.of("e3", "e4", "e5"), replay.items());
+        assertFalse(replay.complete(), "e2 ist schon überschrieben");
+    }
+
+    @Test
+    void emptyBuffer() {
+        RecentAuditEvents<String> r = new RecentAuditEvents<>(0);
+        r.append(1, "e1");
+        assertEquals(List.of(), r.after(0).items());
+    }
+}
@@ -0,0 +1,131 @@
+package com.lennadi.eventbubble30.search;
+
+import com.lennadi.eventbubble30.features.db.Location;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.search.EventClusters;
+import com.lennadi.eventbubble30.features.search.EventGeoIndex;
+import com.lennadi.eventbubble30.features.search.EventSearchCache;
+import com.lennadi.eventbubble30.features.search.EventTextIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/// Zoom 8: Kacheln von 1.40625°, Grid 8 -> Zellen von 0.17578125°, beides exakt als double darstellbar
+class EventClustersTest {
+
+    private static final int ZOOM = 8;
+    private static final double TILE = 1.40625;
+    private static final double CELL = TILE / 8;
+
+    private EventGeoIndex geoIndex;
+    private SimpleMeterRegistry registry;
+    private EventClusters clusters;
+
+    @BeforeEach
+    void setup() {
+        geoIndex = new EventGeoIndex(mock(VeranstaltungsRepository.class));
+        ReflectionTestUtils.setField(geoIndex, "cellDeg", 0.05);
+
+        VeranstaltungsRepository repo = mock(VeranstaltungsRepository.class);
+        when(repo.findExternalIds(any())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.stream().map(EventClustersTest::idRow).toList();
+        });
+
+        registry = new SimpleMeterRegistry();
+        clusters = new EventClusters(geoIndex, mock(EventTextIndex.class), repo, registry,
+                8, 16, 1000, 5000, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void pointsOnCellAndTileEdgesLandInExactlyOneCell() {
+        geoIndex.update(event(1L, 0.0, 0.0));                // Ecke der Kachel (128, 64), Zelle (0, 0)
+        geoIndex.update(event(2L, CELL, 0.0));               // genau auf der Zellgrenze: Zelle (1, 0)
+        geoIndex.update(event(3L, TILE - 1e-9, 0.0));        // knapp unter der Kachelkante: letzte Zeile
+        geoIndex.update(event(4L, TILE, 0.0));               // genau auf der Kachelkante: nächste Kachel
+        geoIndex.update(event(5L, 0.0, TILE));               // rechts daneben, nicht in der bbox
+
+        EventClusters.Result r = clusters.clusters(0.0, 0.0, 1.5, 1.0, ZOOM, null, null, null);
+
+        assertEquals(ZOOM, r.zoom());
+        assertEquals(4, r.total());
+        List<EventClusters.Cluster> sorted = r.clusters().stream()
+                .sorted(Comparator.comparingDouble(EventClusters.Cluster::lat))
+                .toList();
+        assertEquals(List.of(0.0, CELL, TILE - 1e-9, TILE), sorted.stream().map(EventClusters.Cluster::lat).toList());
+        assertTrue(sorted.stream().allMatch(c -> c.count() == 1));
+        assertEquals(List.of("ext2"), sorted.get(1).sampleIds());
+    }
+
+    @Test
+    void pointsInOneCellAreMerged() {
+        geoIndex.update(event(1L, 0.01, 0.01));
+        geoIndex.update(event(2L, 0.03, 0.05));
+        geoIndex.update(event(3L, CELL - 0.01, CELL - 0.01));
+        geoIndex.update(event(4L, 0.02, 0.02));
+
+        EventClusters.Result r = clusters.clusters(0.0, 0.0, 1.0, 1.0, ZOOM, null, null, null);
+
+        assertEquals(1, r.clusters().size());
+        EventClusters.Cluster c = r.clusters().get(0);
+        assertEquals(4, c.count());
+        assertEquals((0.01 + 0.03 + CELL - 0.01 + 0.02) / 4, c.lat(), 1e-12);
+        assertEquals(3, c.sampleIds().size(), "höchstens drei Beispiele");
+    }
+
+    @Test
+    void tilesAreCachedUntilInvalidated() {
+        geoIndex.update(event(1L, 0.5, 0.5));
+        assertEquals(1, clusters.clusters(0.0, 0.0, 1.0, 1.0, ZOOM, null, null, null).total());
+
+        // ohne invalidate bleibt die gecachte Kachel stehen
+        Veranstaltung added = event(2L, 0.6, 0.6);
+        geoIndex.update(added);
+        assertEquals(1, clusters.clusters(0.0, 0.0, 1.0, 1.0, ZOOM, null, null, null).total());
+        assertEquals(1.0, registry.counter("search.clusters.tiles", "result", "hit").count());
+
+        // Event außerhalb der Kachel verwirft nichts
+        clusters.invalidate(null, new EventSearchCache.Footprint(null, 10.0, 10.0, null, null));
+        assertEquals(1, clusters.clusters(0.0, 0.0, 1.0, 1.0, ZOOM, null, null, null).total());
+
+        clusters.invalidate(null, EventSearchCache.Footprint.of(added));
+        assertEquals(2, clusters.clusters(0.0, 0.0, 1.0, 1.0, ZOOM, null, null, null).total());
+        assertEquals(2.0, registry.counter("search.clusters.tiles", "result", "miss").count());
+    }
+
+    @Test
+    void zoomIsReducedWhenTheBboxHasTooManyTiles() {
+        EventClusters.Result r = clusters.clusters(-10.0, -10.0, 10.0, 10.0, ZOOM, null, null, null);
+        assertEquals(6, r.zoom(), "16 Kacheln bei Zoom 6, 64 bei Zoom 7");
+        assertTrue(r.clusters().isEmpty());
+    }
+
+    private static VeranstaltungsRepository.IdRow idRow(Long id) {
+        return new VeranstaltungsRepository.IdRow() {
+            @Override public Long getId() { return id; }
+            @Override public String getExternalId() { return "ext" + id; }
+        };
+    }
+
+    private static Veranstaltung event(Long id, double lat, double lon) {
+        Veranstaltung v = new Veranstaltung();
+        ReflectionTestUtils.setField(v, "id", id);
+        Location l = new Location();
+        l.setLatitude(lat);
+        l.setLongitude(lon);
+        v.setLocation(l);
+        return v;
+    }
+}
@@ -0,0 +1,39 @@
+package com.lennadi.eventbubble30.search;
+
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository.OrderBy;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository.OrderDir;
+import com.lennadi.eventbubble30.features.search.EventCursor;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventCursorTest {
+
+    @Test
+    void roundTrip() {
+        EventCursor c = new EventCursor(OrderBy.termin, OrderDir.desc, Instant.parse("2030-01-01T12:00:00.123Z"), 42L);
+        assertEquals(c, EventCursor.decode(c.encode()));
+    }
+
+    @Test
+    void roundTripWithoutValue() {
+        EventCursor c = new EventCursor(OrderBy.termin, OrderDir.asc, null, 7L);
+        assertEquals(c, EventCursor.decode(c.encode()), "Cursor im Abschnitt der Events ohne Termin");
+    }
+
+    @Test
+    void malformed() {
+        assertThrows(IllegalArgumentException.class, () -> EventCursor.decode("!!"));
+        assertThrows(IllegalArgumentException.class, () -> EventCursor.decode(base64("termin|asc")));
+        assertThrows(IllegalArgumentException.class, () -> EventCursor.decode(base64("termin|asc|kein-datum|1")));
+        assertThrows(IllegalArgumentException.class, () -> EventCursor.decode(base64("popular|asc|null|1")));
+    }
+
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
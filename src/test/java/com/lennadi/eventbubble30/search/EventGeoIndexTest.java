@@ -0,0 +1,66 @@
+package com.lennadi.eventbubble30.search;
+
+import com.lennadi.eventbubble30.features.db.Location;
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.search.EventGeoIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class EventGeoIndexTest {
+
+    private EventGeoIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new EventGeoIndex(mock(VeranstaltungsRepository.class));
+        ReflectionTestUtils.setField(index, "cellDeg", 0.05);
+
+        index.update(event(1L, 50.9375, 6.9603));   // Köln Dom
+        index.update(event(2L, 50.9413, 6.9583));   // Köln Hbf
+        index.update(event(3L, 51.2277, 6.7735));   // Düsseldorf
+        index.update(event(4L, 52.5200, 13.4050));  // Berlin
+    }
+
+    @Test
+    void withinRadius_isExactCircle() {
+        assertEquals(Set.of(1L, 2L), index.withinRadius(50.9375, 6.9603, 5, 100));
+        assertEquals(Set.of(1L, 2L, 3L), index.withinRadius(50.9375, 6.9603, 40, 100));
+    }
+
+    @Test
+    void withinBox() {
+        assertEquals(Set.of(1L, 2L, 3L), index.withinBox(50.0, 6.0, 52.0, 7.5, 100));
+    }
+
+    @Test
+    void withinBox_overLimitReturnsNull() {
+        assertNull(index.withinBox(-90, -180, 90, 180, 2));
+    }
+
+    @Test
+    void update_movesEvent() {
+        index.update(event(4L, 50.9380, 6.9600));
+        assertTrue(index.withinRadius(50.9375, 6.9603, 1, 100).contains(4L));
+
+        index.remove(4L);
+        assertFalse(index.withinRadius(50.9375, 6.9603, 1, 100).contains(4L));
+        assertEquals(3, index.size());
+    }
+
+    private static Veranstaltung event(Long id, double lat, double lon) {
+        Veranstaltung v = new Veranstaltung();
+        ReflectionTestUtils.setField(v, "id", id);
+        Location l = new Location();
+        l.setLatitude(lat);
+        l.setLongitude(lon);
+        v.setLocation(l);
+        return v;
+    }
+}
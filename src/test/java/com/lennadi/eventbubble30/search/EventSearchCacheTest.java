@@ -0,0 +1,76 @@
+package com.lennadi.eventbubble30.search;
+
+import com.lennadi.eventbubble30.features.controller.VeranstaltungController;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.search.EventSearchCache;
+import com.lennadi.eventbubble30.features.search.Gazetteer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventSearchCacheTest {
+
+    private SimpleMeterRegistry registry;
+    private EventSearchCache cache;
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        Gazetteer gazetteer = new Gazetteer(new ClassPathResource("gazetteer/DE.txt"), new ClassPathResource("gazetteer/aliases.tsv"));
+        gazetteer.load();
+        cache = new EventSearchCache(registry, gazetteer, 2, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void key_isNormalized() {
+        assertEquals(cache.key(search(" Konzert  Köln", "KÖLN"), 0, 10), cache.key(search("konzert köln", "Cologne"), 0, 10));
+    }
+
+    @Test
+    void invalidate_onlyMatchingCity() {
+        EventSearchCache.Key koeln = cache.key(search(null, "Köln"), 0, 10);
+        EventSearchCache.Key berlin = cache.key(search(null, "Berlin"), 0, 10);
+        cache.put(koeln, cache.generation(), List.of(1L), PageRequest.of(0, 10), 1);
+        cache.put(berlin, cache.generation(), List.of(2L), PageRequest.of(0, 10), 1);
+
+        cache.invalidate(null, new EventSearchCache.Footprint("koeln", 50.9, 6.9, Instant.now(), "u1"));
+
+        assertNull(cache.get(koeln));
+        assertNotNull(cache.get(berlin));
+        assertEquals(1, registry.get("search.cache.evictions").tag("cause", "write").counter().count());
+    }
+
+    @Test
+    void put_afterWriteIsDropped() {
+        EventSearchCache.Key k = cache.key(search(null, null), 0, 10);
+        long gen = cache.generation();
+        cache.invalidate(null, null);
+        cache.put(k, gen, List.of(1L), PageRequest.of(0, 10), 1);
+
+        assertNull(cache.get(k));
+    }
+
+    @Test
+    void sizeEviction() {
+        for (int i = 0; i < 3; i++) {
+            cache.put(cache.key(search(null, "c" + i), 0, 10), cache.generation(), List.of(), PageRequest.of(0, 10), 0);
+        }
+        assertNull(cache.get(cache.key(search(null, "c0"), 0, 10)));
+        assertEquals(1, registry.get("search.cache.evictions").tag("cause", "size").counter().count());
+    }
+
+    private static VeranstaltungController.EventSearch search(String q, String city) {
+        return new VeranstaltungController.EventSearch(
+                q, city, null, null, null, null, null, null, null, null, null, null,
+                VeranstaltungsRepository.OrderBy.termin, VeranstaltungsRepository.OrderDir.asc
+        );
+    }
+}
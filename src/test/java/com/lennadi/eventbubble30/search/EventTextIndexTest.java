@@ -0,0 +1,84 @@
+package com.lennadi.eventbubble30.search;
+
+import com.lennadi.eventbubble30.features.db.entities.Veranstaltung;
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.search.EventTextIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class EventTextIndexTest {
+
+    private EventTextIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new EventTextIndex(mock(VeranstaltungsRepository.class));
+
+        index.update(event(1L, "Konzert im Kölner Dom", "Orgelmusik und Chor"));
+        index.update(event(2L, "Flohmarkt", "Viele Konzerte und Stände am Rhein"));
+        index.update(event(3L, "Lesung", "Ein Abend mit Gedichten"));
+    }
+
+    @Test
+    void search_stemsAndRanksTitleHigher() {
+        var hits = index.search("konzerte", 10);
+
+        assertEquals(List.of(1L, 2L), List.copyOf(hits.scores().keySet()));
+        assertFalse(hits.truncated());
+    }
+
+    @Test
+    void search_umlautsAndAnd() {
+        assertEquals(List.of(1L), List.copyOf(index.search("kölner konzert", 10).scores().keySet()));
+        assertTrue(index.search("kölner lesung", 10).scores().isEmpty());
+    }
+
+    @Test
+    void search_onlyStopwordsFallsBack() {
+        assertNull(index.search("und der", 10));
+    }
+
+    @Test
+    void update_replacesOldTerms() {
+        index.update(event(3L, "Konzert", null));
+
+        assertTrue(index.search("lesung", 10).scores().isEmpty());
+        assertEquals(3, index.search("konzert", 10).scores().size());
+
+        index.remove(3L);
+        assertEquals(2, index.search("konzert", 10).scores().size());
+    }
+
+    @Test
+    void search_truncates() {
+        var hits = index.search("konzert", 1);
+
+        assertEquals(1, hits.scores().size());
+        assertTrue(hits.truncated());
+    }
+
+    @Test
+    void search_lastTermMatchesAsPrefix() {
+        index.update(event(4L, "Festival am See", null));
+
+        assertEquals(List.of(4L), List.copyOf(index.search("festiv", 10).scores().keySet()));
+        assertEquals(List.of(4L), List.copyOf(index.search("see festiv", 10).scores().keySet()));
+        assertTrue(index.search("festiv see", 10).scores().isEmpty(), "nur das letzte Wort als Präfix");
+        assertEquals(List.of(3L), List.copyOf(index.search("lesu", 10).scores().keySet()));
+        assertTrue(index.search("fe", 10).scores().isEmpty(), "zu kurz für Präfixsuche");
+    }
+
+    private static Veranstaltung event(Long id, String title, String description) {
+        Veranstaltung v = new Veranstaltung();
+        ReflectionTestUtils.setField(v, "id", id);
+        v.setTitle(title);
+        v.setDescription(description);
+        return v;
+    }
+}
@@ -0,0 +1,56 @@
+package com.lennadi.eventbubble30.search;
+
+import com.lennadi.eventbubble30.features.db.Location;
+import com.lennadi.eventbubble30.features.search.Gazetteer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GazetteerTest {
+
+    private Gazetteer gazetteer;
+
+    @BeforeEach
+    void setup() {
+        gazetteer = new Gazetteer(new ClassPathResource("gazetteer/DE.txt"), new ClassPathResource("gazetteer/aliases.tsv"));
+        gazetteer.load();
+    }
+
+    @Test
+    void cityKey_spellingsAndAliases() {
+        assertEquals("koeln", gazetteer.cityKey("Köln"));
+        assertEquals("koeln", gazetteer.cityKey(" koeln "));
+        assertEquals("koeln", gazetteer.cityKey("Cologne"));
+        assertEquals("frankfurt-am-main", gazetteer.cityKey("Frankfurt a.M."));
+        assertEquals("kleinkleckersdorf", gazetteer.cityKey("Kleinkleckersdorf"));
+        assertNull(gazetteer.cityKey("  "));
+    }
+
+    @Test
+    void canonicalize_fillsCityAndCoordinatesFromPostalCode() {
+        Location l = new Location();
+        l.setPostalCode(" 50823 ");
+
+        gazetteer.canonicalize(l);
+
+        assertEquals("50823", l.getPostalCode());
+        assertEquals("Köln", l.getCity());
+        assertEquals("koeln", l.getCityKey());
+        assertEquals(50.95, l.getLatitude(), 0.01);
+    }
+
+    @Test
+    void canonicalize_keepsGivenCoordinates() {
+        Location l = new Location();
+        l.setCity("munich");
+        l.setLatitude(1.0);
+        l.setLongitude(2.0);
+
+        gazetteer.canonicalize(l);
+
+        assertEquals("München", l.getCity());
+        assertEquals(1.0, l.getLatitude());
+    }
+}
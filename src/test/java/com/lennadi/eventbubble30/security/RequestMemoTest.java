@@ -0,0 +1,48 @@
+package com.lennadi.eventbubble30.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestMemoTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void cleanup() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void loadsOncePerRequestUntilForgotten() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        assertEquals(1, RequestMemo.get("k", loads::incrementAndGet));
+        assertEquals(1, RequestMemo.get("k", loads::incrementAndGet));
+
+        RequestMemo.forget("k");
+        assertEquals(2, RequestMemo.get("k", loads::incrementAndGet));
+    }
+
+    @Test
+    void nullIsRememberedToo() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        assertNull(RequestMemo.get("k", () -> { loads.incrementAndGet(); return null; }));
+        assertNull(RequestMemo.get("k", () -> { loads.incrementAndGet(); return null; }));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void outsideARequestNothingIsRemembered() {
+        assertEquals(1, RequestMemo.get("k", loads::incrementAndGet));
+        assertEquals(2, RequestMemo.get("k", loads::incrementAndGet));
+        RequestMemo.forget("k"); // kein Fehler ohne Request
+    }
+}
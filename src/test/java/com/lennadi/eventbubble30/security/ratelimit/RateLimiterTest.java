@@ -0,0 +1,59 @@
+package com.lennadi.eventbubble30.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private RateLimiter limiter(int limit) {
+        return new RateLimiter(limit, Duration.ofMinutes(1), 1000, now::get);
+    }
+
+    @Test
+    void rejectsAboveLimitWithRetryAfter() {
+        RateLimiter l = limiter(3);
+        for (int i = 0; i < 3; i++) assertTrue(l.tryAcquire("a").allowed());
+
+        RateLimiter.Decision d = l.tryAcquire("a");
+        assertFalse(d.allowed());
+        assertTrue(d.retryAfterSeconds() >= 1 && d.retryAfterSeconds() <= 60);
+
+        assertTrue(l.tryAcquire("b").allowed(), "andere Keys sind unabhängig");
+    }
+
+    @Test
+    void previousWindowCountsProportionally() {
+        RateLimiter l = limiter(10);
+        now.set(60_000 * 100);
+        for (int i = 0; i < 10; i++) assertTrue(l.tryAcquire("a").allowed());
+
+        // Mitte des nächsten Fensters: 10 * 0.5 = 5 zählen noch
+        now.set(60_000 * 101 + 30_000);
+        for (int i = 0; i < 5; i++) assertTrue(l.tryAcquire("a").allowed());
+        assertFalse(l.tryAcquire("a").allowed());
+
+        // zwei Fenster später ist alles vergessen
+        now.set(60_000 * 103);
+        assertTrue(l.tryAcquire("a").allowed());
+    }
+
+    @Test
+    void evictsIdleKeys() {
+        RateLimiter l = limiter(5);
+        now.set(60_000 * 100);
+        l.tryAcquire("a");
+        l.tryAcquire("b");
+        assertEquals(2, l.size());
+
+        now.set(60_000 * 102 + 1);
+        l.tryAcquire("b");
+        l.evictIdle();
+        assertEquals(1, l.size());
+    }
+}
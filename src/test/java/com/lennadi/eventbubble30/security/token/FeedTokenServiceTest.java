@@ -0,0 +1,72 @@
+package com.lennadi.eventbubble30.security.token;
+
+import com.lennadi.eventbubble30.config.ServerConfigService;
+import com.lennadi.eventbubble30.features.db.entities.Benutzer;
+import com.lennadi.eventbubble30.features.db.repository.BenutzerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FeedTokenServiceTest {
+
+    private final BenutzerRepository repo = mock(BenutzerRepository.class);
+    private final ServerConfigService serverConfig = mock(ServerConfigService.class);
+
+    private FeedTokenService tokens;
+    private Benutzer user;
+
+    @BeforeEach
+    void setup() {
+        tokens = new FeedTokenService(repo, serverConfig, "secret");
+
+        user = new Benutzer();
+        ReflectionTestUtils.setField(user, "externalId", "User-1");
+        when(repo.findByExternalIdIgnoreCase(anyString())).thenReturn(Optional.empty());
+        when(repo.findByExternalIdIgnoreCase("user-1")).thenReturn(Optional.of(user));
+        when(serverConfig.getGlobalTokenRevokationTime()).thenReturn(Instant.EPOCH);
+    }
+
+    @Test
+    void acceptsOwnTokenOnly() {
+        String token = tokens.tokenFor(user);
+
+        assertTrue(tokens.isValid("user-1", token));
+        assertFalse(tokens.isValid("someone-else", token));
+        assertFalse(tokens.isValid("user-1", "not base64!"));
+        assertFalse(tokens.isValid("user-1", null));
+        assertFalse(new FeedTokenService(repo, serverConfig, "other").isValid("user-1", token), "anderes Secret");
+    }
+
+    @Test
+    void invalidateTokensRotatesLink() {
+        String token = tokens.tokenFor(user);
+        user.setTokensInvalidatedAt(Instant.now());
+
+        assertFalse(tokens.isValid("user-1", token));
+        assertTrue(tokens.isValid("user-1", tokens.tokenFor(user)));
+    }
+
+    @Test
+    void passwordChangeRotatesLink() {
+        String token = tokens.tokenFor(user);
+        user.setPasswordHash("neu");
+
+        assertFalse(tokens.isValid("user-1", token));
+    }
+
+    @Test
+    void globalInvalidationRotatesLink() {
+        String token = tokens.tokenFor(user);
+        when(serverConfig.getGlobalTokenRevokationTime()).thenReturn(Instant.now());
+
+        assertFalse(tokens.isValid("user-1", token));
+    }
+}
@@ -0,0 +1,92 @@
+package com.lennadi.eventbubble30.service;
+
+import com.lennadi.eventbubble30.features.service.BookmarkCountService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BookmarkCountServiceTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private BookmarkCountService service;
+
+    @BeforeEach
+    void setup() {
+        service = new BookmarkCountService(jdbc);
+    }
+
+    @Test
+    void deltasAreMergedPerEvent() {
+        service.increment(1L);
+        service.increment(1L);
+        service.increment(1L);
+        service.decrement(1L);
+        service.increment(2L);
+
+        assertEquals(12, service.current(1L, 10));
+        assertEquals(1, service.current(2L, 0));
+        assertEquals(5, service.current(3L, 5));
+    }
+
+    @Test
+    void currentNeverGoesNegative() {
+        for (int i = 0; i < 5; i++) service.decrement(1L);
+        assertEquals(0, service.current(1L, 2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesOneBatchAndSkipsZeroDeltas() {
+        service.increment(1L);
+        service.increment(1L);
+        service.decrement(2L);
+        service.increment(3L);
+        service.decrement(3L); // hebt sich auf
+
+        service.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbc).batchUpdate(anyString(), batch.capture());
+        Map<Object, Object> deltas = batch.getValue().stream().collect(Collectors.toMap(r -> r[1], r -> r[0]));
+        assertEquals(Map.of(1L, 2L, 2L, -1L), deltas);
+
+        // danach steht alles in der Spalte, kein offenes Delta mehr
+        assertEquals(7, service.current(1L, 7));
+
+        service.flush();
+        verifyNoMoreInteractions(jdbc);
+    }
+
+    @Test
+    void failedFlushKeepsTheDeltas() {
+        when(jdbc.batchUpdate(anyString(), anyList())).thenThrow(new QueryTimeoutException("timeout"));
+
+        service.increment(1L);
+        service.increment(1L);
+        assertThrows(QueryTimeoutException.class, service::flush);
+
+        service.increment(1L); // kommt während des Ausfalls dazu
+        assertEquals(3, service.current(1L, 0));
+    }
+
+    @Test
+    void forgetDropsThePendingDelta() {
+        service.increment(1L);
+        service.forget(1L);
+
+        assertEquals(4, service.current(1L, 4));
+        service.flush();
+        verifyNoInteractions(jdbc);
+    }
+}
@@ -0,0 +1,66 @@
+package com.lennadi.eventbubble30.service;
+
+import com.lennadi.eventbubble30.features.db.repository.VeranstaltungsRepository;
+import com.lennadi.eventbubble30.features.service.IcsWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IcsWriterTest {
+
+    private static String write(VeranstaltungsRepository.IcsRow row) throws IOException {
+        StringWriter out = new StringWriter();
+        IcsWriter ics = new IcsWriter(out);
+        ics.begin("Test");
+        ics.event(row);
+        ics.end();
+        return out.toString();
+    }
+
+    private static VeranstaltungsRepository.IcsRow row(String title, String description) {
+        return new VeranstaltungsRepository.IcsRow(
+                "abc", title, description,
+                Instant.parse("2030-05-01T18:30:00Z"), Instant.parse("2030-01-01T00:00:00Z"),
+                null, "Hauptstr. 1", "12345", "Berlin", "DE",
+                52.5, 13.4
+        );
+    }
+
+    /// gefaltete Zeilen wieder zusammensetzen (RFC 5545 3.1)
+    private static List<String> unfold(String ics) {
+        return Arrays.asList(ics.replace("\r\n ", "").split("\r\n"));
+    }
+
+    @Test
+    void escapesTextValues() throws IOException {
+        List<String> lines = unfold(write(row("Party; Bier, Tanz", "Zeile 1\nZeile 2\r\nC:\\temp")));
+
+        assertTrue(lines.contains("SUMMARY:Party\\; Bier\\, Tanz"));
+        assertTrue(lines.contains("DESCRIPTION:Zeile 1\\nZeile 2\\nC:\\\\temp"));
+        assertTrue(lines.contains("LOCATION:Hauptstr. 1\\, 12345 Berlin\\, DE"));
+        assertTrue(lines.contains("DTSTART:20300501T183000Z"));
+        assertTrue(lines.contains("GEO:52.5;13.4"));
+    }
+
+    @Test
+    void foldsAt75OctetsWithoutSplittingCharacters() throws IOException {
+        String title = "Ä".repeat(100) + "€🎉".repeat(20);
+        String ics = write(row(title, null));
+
+        assertTrue(ics.endsWith("END:VCALENDAR\r\n"));
+        for (String physical : ics.split("\r\n")) {
+            byte[] bytes = physical.getBytes(StandardCharsets.UTF_8);
+            assertTrue(bytes.length <= 75, "Zeile zu lang: " + bytes.length);
+            String content = physical.startsWith(" ") ? physical.substring(1) : physical;
+            assertFalse(Character.isLowSurrogate(content.charAt(0)), "Surrogatpaar getrennt");
+        }
+        assertTrue(unfold(ics).contains("SUMMARY:" + title));
+    }
+}